@@ -1,4 +1,7 @@
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -25,19 +28,43 @@ class CompressedVideo {
 	final int foregroundQuant;
 	final int backgroundQuant;
 	final int gazeSize;
+	final InputFormat inputFormat;
+	final RGBFileReader.GrayConversion grayConversion;
+	final int numThreads;
+	final long frameCacheBytes;
+	final long tileCacheBytes;
+	final DCTBlock.CoefficientFormat coefficientFormat;
+	
+	/**
+	 * Thread pool for work that is split up across cores, sized by numThreads
+	 */
+	final ForkJoinPool workers;
 	
 	/** 
-	 * Byte array that is read from the input file with one frame's worth of r (red), b (blue), and g(green) bytes.
-	 * Y (grayscale channel) bytes are computed during reading of input file 
+	 * Storage of the pre-processed video, with one frame's worth of r (red), b (blue), and g(green) bytes
+	 * per frame plus the Y (grayscale channel) bytes that are computed from them. Either read into the heap
+	 * or memory mapped from the input file, see FrameStore class 
 	 */	
-	byte[] rgbyInput; 
+	FrameStore frameStore; 
 
 	/** 
-	 * Array of video frames, where each frame can be thought of as a picture in time, when shown rapidly enough,
+	 * Creates the video frames, where each frame can be thought of as a picture in time, when shown rapidly enough,
 	 * one after the other, creates a movie. Video frame is an important class that contains all of the data for
-	 * the post-processed video (rgbyInput is the pre-processed video)
+	 * the post-processed video (frameStore is the pre-processed video)
+	 */
+	FramePipeline pipeline;
+
+	/**
+	 * Finished video frames, least recently used frames are evicted once over frameCacheBytes and
+	 * created again when they are played, see FrameCache class
+	 */
+	FrameCache frameCache;
+	
+	/**
+	 * Reconstructed DCTBlock tiles, so a block rendered again with the same quantization value is
+	 * only copied, see TileCache class. Null when tileCacheBytes is 0
 	 */
-	VideoFrame[] videoFrames;
+	TileCache tileCache;
 	
 	/**
 	 * Simple class that contains the JFrame and action listeners in order to display, play, and pause a video.
@@ -49,6 +76,41 @@ class CompressedVideo {
 	 */
 	float[][] cosTable; 
 	
+	/**
+	 * DCT and IDCT implementation used by every DCTBlock, see DctEngine interface
+	 */
+	DctEngine dctEngine;
+	
+	/**
+	 * Checks dctEngine against the reference engine on a sample of blocks, null when turned off
+	 */
+	DctCrossCheck dctCrossCheck;
+	
+	/**
+	 * Search that finds the motion vector of every MacroBlock, see MotionSearch interface
+	 */
+	final MotionSearch motionSearch;
+	
+	/**
+	 * Counts SAD evaluations and mean SAD of motionSearch, see MotionStats class
+	 */
+	final MotionStats motionStats;
+	
+	/**
+	 * Motion vectors of past frames, kept when motionSearch uses them, see MotionHistory class
+	 */
+	final MotionHistory motionHistory;
+	
+	/**
+	 * Work space for rendering frames, one DCTBlock per thread so rendering does not allocate, see VideoFrame.getFrameImage
+	 */
+	final ThreadLocal<DCTBlock> renderBlocks;
+	
+	/**
+	 * Counts which IDCT path rendered blocks take, see DCTBlock.dctToIDCT
+	 */
+	final IdctStats idctStats = new IdctStats();
+	
 	/** 
 	 * Instance variables for turning gaze simulation on (with mouse pointer) and pausing the playback of the video 
 	 */
@@ -57,6 +119,12 @@ class CompressedVideo {
 		
 	static final int NUM_CHANNELS_RGB = 3;
 	static final int NUM_CHANNELS_RGBY = 4;
+	
+	//input filename that reads raw .rgb frames from standard input until it ends
+	static final String STDIN_FILENAME = "-";
+	
+	//numOfFrames when reading from standard input
+	static final int UNKNOWN_NUM_OF_FRAMES = -1;
 
 	
 
@@ -69,10 +137,30 @@ class CompressedVideo {
 			int gazeSize,
 			int foregroundQuant,
 			int backgroundQuant,			
-			boolean gazeControlOn) {
+			boolean gazeControlOn,
+			boolean mappedInput,
+			RGBFileReader.GrayConversion grayConversion,
+			int numThreads,
+			long frameCacheBytes,
+			long tileCacheBytes,
+			DCTBlock.CoefficientFormat coefficientFormat,
+			DctEngine.Kind dctEngineKind,
+			int dctCheckInterval,
+			MotionSearch.Kind motionSearchKind) {
 		
 		this.macroBlockSize = macroBlockSize;
 		this.dctBlockSize = dctBlockSize;
+		inputFormat = InputFormat.fromFile(inputFile);
+		YUVFileReader.Y4MHeader y4mHeader = null;
+		if (inputFormat == InputFormat.Y4M) {
+			try {
+				y4mHeader = YUVFileReader.readY4MHeader(inputFile); //frame size comes from the file
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			frameHeight = y4mHeader.height;
+			frameWidth = y4mHeader.width;
+		}
 		this.frameHeight = frameHeight;
 		this.frameWidth = frameWidth;
 		this.searchParamK = searchParamK;
@@ -80,50 +168,136 @@ class CompressedVideo {
 		this.foregroundQuant = foregroundQuant;
 		this.backgroundQuant = backgroundQuant;
 		this.gazeOn = gazeControlOn;
+		this.grayConversion = grayConversion;
+		this.numThreads = numThreads;
+		this.frameCacheBytes = frameCacheBytes;
+		this.tileCacheBytes = tileCacheBytes;
+		if (coefficientFormat == DCTBlock.CoefficientFormat.FIXED_POINT && dctBlockSize != FixedPointDct.BLOCK_SIZE) {
+			throw new IllegalArgumentException("FIXED_POINT coefficients need " + FixedPointDct.BLOCK_SIZE + "x" + 
+					FixedPointDct.BLOCK_SIZE + " DCT blocks");
+		}
+		this.coefficientFormat = coefficientFormat;
+		workers = new ForkJoinPool(numThreads);
 		frameHeightPadded = (frameHeight % macroBlockSize != 0) ? ((frameHeight/macroBlockSize) + 1) * macroBlockSize : frameHeight;
 		frameWidthPadded = (frameWidth % macroBlockSize != 0) ? ((frameWidth/macroBlockSize) + 1) * macroBlockSize : frameWidth;
 		frameSizePadded = frameHeightPadded * frameWidthPadded;
 		numOfMacroBlocksPerFrame = (frameHeightPadded * frameWidthPadded) / (macroBlockSize * macroBlockSize);
-		numOfFrames = (int) (inputFile.length()/(frameHeight * frameWidth * NUM_CHANNELS_RGB));
-		rgbyInput = (new RGBFileReader(this)).getBytes(inputFile); //reads input file using RGBFileReader instance which also creates Y channel
+		numOfFrames = countFrames(inputFile, y4mHeader);
+		if (inputFile.getPath().equals(STDIN_FILENAME)) {
+			frameStore = new StreamFrameStore(this, System.in); //reads frames as they arrive, keeps only the ones still in use
+		}
+		else if (inputFormat != InputFormat.RGB) {
+			frameStore = new YUVFrameStore(this, inputFile, y4mHeader); //reads input file using YUVFileReader instance, Y channel is used as is
+		}
+		else if (mappedInput) {
+			frameStore = new MappedFrameStore(this, inputFile); //maps input file, Y channel is created as frames are used
+		}
+		else {
+			frameStore = new HeapFrameStore(this, inputFile); //reads input file using RGBFileReader instance which also creates Y channel
+		}
 		cosTable = DCTBlock.initCosTable(dctBlockSize); //creates cosine table used later for DCT computation
-		videoFrames = VideoFrame.createFrames(this);  
+		dctEngine = dctEngineKind.create(dctBlockSize, cosTable);
+		if (dctCheckInterval > 0) {
+			dctCrossCheck = new DctCrossCheck(dctEngine, DctEngine.Kind.REFERENCE.create(dctBlockSize, cosTable), 
+					dctBlockSize, dctCheckInterval);
+			dctEngine = dctCrossCheck;
+		}
+		motionSearch = motionSearchKind.create();
+		motionStats = new MotionStats(motionSearchKind);
+		motionHistory = new MotionHistory(!inputFile.getPath().equals(STDIN_FILENAME));
+		renderBlocks = ThreadLocal.withInitial(() -> new DCTBlock(this));
+		frameCache = new FrameCache(this, frameCacheBytes);
+		if (tileCacheBytes > 0) {
+			tileCache = new TileCache(this, tileCacheBytes);
+		}
+		pipeline = new FramePipeline(this);
+		pipeline.start(); //frames are created in the background and can be played as soon as they are done
 		player = new VideoPlayer(this);  
 		pause = false;
 	}
 
 
 	/**
-	 * Plays compressed video in a looped manner and checks for pause flag
+	 * Number of whole frames in the input file, or UNKNOWN_NUM_OF_FRAMES for standard input
+	 */
+	private int countFrames(File inputFile, YUVFileReader.Y4MHeader y4mHeader) {
+		if (inputFile.getPath().equals(STDIN_FILENAME)) {
+			return UNKNOWN_NUM_OF_FRAMES;
+		}
+		switch (inputFormat) {
+		case YUV420:
+			return (int) (inputFile.length() / YUVFileReader.getFrameSize(this));
+		case Y4M:
+			try {
+				return YUVFileReader.countY4MFrames(inputFile, y4mHeader, YUVFileReader.getFrameSize(this));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		default:
+			return (int) (inputFile.length() / ((long) frameHeight * frameWidth * NUM_CHANNELS_RGB));
+		}
+	}
+
+
+	/**
+	 * Plays compressed video in a looped manner and checks for pause flag. Frames that the FrameCache
+	 * dropped to stay within its budget are skipped, so the loop starts at the oldest frame left
 	 */
 	void playVideo() throws InterruptedException {
 		System.out.println("Video now playing...");
-		for (int frameNum = 0; frameNum < numOfFrames; frameNum++) {
+		int frameNum = 0;
+		while (true) {
 			//pause if true
 			while (pause) {
 				Thread.sleep(50);
 			}
 			
-			//update frame
-			player.updateFrameImg(frameNum, gazeOn);
-			
-			//loop video
-			if (frameNum == numOfFrames - 1) {
-				frameNum = 0;
+			//loop video once the input has ended
+			VideoFrame videoFrame = getVideoFrame(frameNum);
+			if (videoFrame == null) {
+				int firstFrameNum = frameCache.getFirstFrameNum();
+				if (frameNum < firstFrameNum) {
+					frameNum = firstFrameNum; //dropped before it was played, catch up
+					continue;
+				}
+				if (frameNum == 0) {
+					System.out.println("No frames to play");
+					return;
+				}
+				System.out.println(frameCache.getStats());
+				if (tileCache != null) {
+					System.out.println(tileCache.getStats());
+				}
+				if (dctCrossCheck != null) {
+					System.out.println(dctCrossCheck.getStats());
+				}
+				System.out.println(idctStats.getStats());
+				System.out.println(motionStats.getStats());
+				frameNum = firstFrameNum;
+				continue;
 			}
 			
+			//update frame
+			player.updateFrameImg(videoFrame, frameNum, gazeOn);
+			frameNum++;
 		}
 	}
 
 
+	/**
+	 * Waits until a video frame has been created and returns it, or returns null if the
+	 * input ended before that frame or the FrameCache dropped it, see FrameCache.getFirstFrameNum
+	 */
+	VideoFrame getVideoFrame(int frameNum) throws InterruptedException {
+		return pipeline.getFrame(frameNum);
+	}
+
+
 	/**
 	 * Method to get one byte of data from input video
 	 */
 	byte getOneByte(int frameNum, Channel channel, int row, int column) {
-		return rgbyInput[(frameNum * frameSizePadded * NUM_CHANNELS_RGBY) +
-		                 (channel.getColorNum() * frameSizePadded) +
-		                 (row * frameWidthPadded) + 
-		                 column]; 
+		return frameStore.getOneByte(frameNum, channel, row, column); 
 	}
 	
 	/**
@@ -143,6 +317,24 @@ class CompressedVideo {
 	}
 	
 
+	/**
+	 * Enum for the supported input file formats, chosen by file extension:
+	 * .yuv for raw planar YUV 4:2:0, .y4m for YUV4MPEG2 4:2:0, and anything else for planar .rgb
+	 */
+	enum InputFormat {
+		RGB, YUV420, Y4M;
+		static InputFormat fromFile(File file) {
+			String name = file.getName().toLowerCase();
+			if (name.endsWith(".y4m")) {
+				return Y4M;
+			}
+			if (name.endsWith(".yuv")) {
+				return YUV420;
+			}
+			return RGB;
+		}
+	}
+	
 	/**
 	 * Enum to specify integer for RGBY channels (Y=Gray)
 	 */
@@ -1,4 +1,4 @@
-import java.awt.image.BufferedImage;
+import java.util.Arrays;
 
 
 /**
@@ -8,7 +8,12 @@ import java.awt.image.BufferedImage;
  * dividing the frequency values by the quantization values and then rounding.
  * The original signal can then be reconstructed by taking the IDCT
  * (Inverse Discrete Cosine Transform) of the frequency data, and then rounded
- * to the nearest integer.
+ * to the nearest integer. The coefficients of every block in a frame are
+ * kept by the VideoFrame in one flat array, see createDCTBlocksForFrame, and
+ * a DCTBlock object is only work space for rendering, one per rendering
+ * thread, see CompressedVideo.renderBlocks. It holds up to MAX_PENDING
+ * blocks at a time so the ones that need a whole IDCT can be transformed
+ * together with DctEngine.inverseBatch.
  * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
  * @author John Leibowitz
  * @version 1.00
@@ -16,29 +21,86 @@ import java.awt.image.BufferedImage;
 class DCTBlock {
 
 	/**
-	 * 3D array that stores DCT coefficients for this DCTBlock. First input is for color channel 0-2 for RGB.
-	 * Second input is for x coordinate, which becomes u coordinate when transformed to frequency.
-	 * Third input is for y coordinate, which becomes v coordinate when transformed to frequency.
+	 * Number of blocks that can be pending, so that their channels fit in one batch
 	 */
-	float[][][] dctCoefficients;
+	static final int MAX_PENDING = DctEngine.BATCH_SIZE / CompressedVideo.NUM_CHANNELS_RGB;
+
+	/**
+	 * DCT coefficients of the r, g, and b channels of each pending block, one channel after the other,
+	 * pending block p starts at p * getBlockLength. Each channel is stored flat at (u * dctBlockSize) + v,
+	 * where u is the frequency coordinate for x and v is the frequency coordinate for y, see DctEngine interface
+	 */
+	final float[] dctCoefficients;
 	
 	/**
-	 * Main constructor
-	 * @param parentVid parent CompressedVideo
-	 * @param frameNum frame number
-	 * @param topLeftRow top left y coordinate
-	 * @param topLeftCol top left x coordinate
+	 * Pixel values that dctToIDCT computes from dctCoefficients, stored flat at (x * dctBlockSize) + y
 	 */
-	DCTBlock(CompressedVideo parentVid, int frameNum, int topLeftRow, int topLeftCol) {
-		dctCoefficients = getDCT(parentVid, frameNum, topLeftRow, topLeftCol);
-	}
+	final float[] pixels;
+	
+	/**
+	 * Same as dctCoefficients and pixels, used instead of them when the video's coefficient format is FIXED_POINT
+	 */
+	final short[] fixedCoefficients;
+	final int[] fixedPixels;
 	
 	/**
-	 * Secondary constructor for temporary DCTBlock
+	 * For each channel of each pending block, one more than the highest u and the highest v that have
+	 * a nonzero coefficient after quantizeCoefficients, so 1 and 1 when only the DC coefficient is left
+	 */
+	final int[] numRows;
+	final int[] numColumns;
+
+	/**
+	 * Block number and quantization value of each pending block
+	 */
+	final int[] pendingBlockNums = new int[MAX_PENDING];
+	final int[] pendingQuants = new int[MAX_PENDING];
+	int numOfPending;
+
+	/**
+	 * Channels waiting for the whole IDCT, stored like in DctEngine.forwardBatch, and the index
+	 * in pixels that each one goes back to
+	 */
+	final float[][] batch;
+	final int[] batchOffsets = new int[DctEngine.BATCH_SIZE];
+	int numOfBatched;
+
+	/**
+	 * Packed RGB pixels of the block that packTile computes from pixels or fixedPixels,
+	 * stored at (y * dctBlockSize) + x like the rows of an image, see writeTile
+	 */
+	final int[] tile;
+
+	/**
+	 * Coefficients under quant times this are within half a quant of 0 even after the rounding of the
+	 * divide in quantizeCoefficients, so they quantize to 0
+	 */
+	private static final float ZERO_BOUND_FACTOR = 0.49f;
+
+	/**
+	 * Creates an empty DCTBlock to render blocks with
 	 * @param parentVid parent CompressedVideo
 	 */
 	DCTBlock(CompressedVideo parentVid) {
-		dctCoefficients = new float[CompressedVideo.NUM_CHANNELS_RGB][parentVid.dctBlockSize][parentVid.dctBlockSize];
+		int blockLength = getBlockLength(parentVid);
+		int channelLength = parentVid.dctBlockSize * parentVid.dctBlockSize;
+		tile = new int[channelLength];
+		numRows = new int[MAX_PENDING * CompressedVideo.NUM_CHANNELS_RGB];
+		numColumns = new int[MAX_PENDING * CompressedVideo.NUM_CHANNELS_RGB];
+		if (parentVid.coefficientFormat == CoefficientFormat.FIXED_POINT) {
+			dctCoefficients = null;
+			pixels = null;
+			batch = null;
+			fixedCoefficients = new short[MAX_PENDING * blockLength];
+			fixedPixels = new int[MAX_PENDING * blockLength];
+		}
+		else {
+			dctCoefficients = new float[MAX_PENDING * blockLength];
+			pixels = new float[MAX_PENDING * blockLength];
+			batch = new float[channelLength][DctEngine.BATCH_SIZE];
+			fixedCoefficients = null;
+			fixedPixels = null;
+		}
 	}
 	
 	
@@ -58,148 +120,365 @@ class DCTBlock {
 	}
 
 	
-	static DCTBlock[] createDCTBlocksForFrame(CompressedVideo parentVideo, int frameNum) {
-		DCTBlock[] oneFrameOfDCTBlocks = new DCTBlock[parentVideo.frameSizePadded / (parentVideo.dctBlockSize * parentVideo.dctBlockSize)];
+	/**
+	 * Computes the DCT coefficients of every block in a frame into the frame's dctCoefficients or
+	 * fixedCoefficients array, depending on the video's coefficient format. Blocks are numbered left
+	 * to right and then top to bottom, and block blockNum starts at blockNum * getBlockLength.
+	 * FLOAT channels are transformed DctEngine.BATCH_SIZE at a time with DctEngine.forwardBatch
+	 * @param parentVideo parent CompressedVideo
+	 * @param frame video frame
+	 */
+	static void createDCTBlocksForFrame(CompressedVideo parentVideo, VideoFrame frame) {
+		final int n = parentVideo.dctBlockSize;
+		final int channelLength = n * n;
+		final int numOfDCTBlocks = getNumOfDCTBlocks(parentVideo);
+		final boolean fixedPoint = parentVideo.coefficientFormat == CoefficientFormat.FIXED_POINT;
+		if (fixedPoint) {
+			frame.fixedCoefficients = new short[numOfDCTBlocks * getBlockLength(parentVideo)];
+		}
+		else {
+			frame.dctCoefficients = new float[numOfDCTBlocks * getBlockLength(parentVideo)];
+		}
+		float[][] batch = new float[channelLength][DctEngine.BATCH_SIZE];
+		int numOfBatched = 0;
+		int[] fixedTile = new int[channelLength];
 		
 		int row = 0;
 		int col = 0;
+		int offset = 0;
 		
-		for (int i = 0; i < oneFrameOfDCTBlocks.length; i++) {
-			oneFrameOfDCTBlocks[i] = new DCTBlock(parentVideo, frameNum, row, col);
-			col += parentVideo.dctBlockSize;
+		for (int i = 0; i < numOfDCTBlocks; i++) {
+			for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+				CompressedVideo.Channel channel = CompressedVideo.Channel.getChannel(channelNum);
+				for (int x = 0; x < n; x++) {
+					for (int y = 0; y < n; y++) {
+						int value = parentVideo.getOneByte(frame.frameNum, channel, row + y, col + x) & 0xff;
+						if (fixedPoint) {
+							fixedTile[(x * n) + y] = value;
+						}
+						else {
+							batch[(x * n) + y][numOfBatched] = value;
+						}
+					}
+				}
+				if (fixedPoint) {
+					FixedPointDct.forward(fixedTile, 0, frame.fixedCoefficients, offset);
+				}
+				else if (++numOfBatched == DctEngine.BATCH_SIZE) {
+					forwardBatch(parentVideo, batch, numOfBatched, frame.dctCoefficients, offset - ((numOfBatched - 1) * channelLength));
+					numOfBatched = 0;
+				}
+				offset += channelLength;
+			}
+			col += n;
 			if (col >= (parentVideo.frameWidthPadded - 1)) {
 				col = 0;
-				row += parentVideo.dctBlockSize;
+				row += n;
+			}
+		}
+		if (numOfBatched > 0) {
+			forwardBatch(parentVideo, batch, numOfBatched, frame.dctCoefficients, offset - (numOfBatched * channelLength));
+		}
+	}
+
+	/**
+	 * Transforms a batch of channels and copies the coefficients to consecutive channels of a frame
+	 */
+	private static void forwardBatch(CompressedVideo parentVideo, float[][] batch, int numOfBatched, float[] dctCoefficients, int offset) {
+		final int channelLength = batch.length;
+		parentVideo.dctEngine.forwardBatch(batch, numOfBatched);
+		for (int b = 0; b < numOfBatched; b++) {
+			int channelOffset = offset + (b * channelLength);
+			for (int i = 0; i < channelLength; i++) {
+				dctCoefficients[channelOffset + i] = batch[i][b];
 			}
 		}
-		
-		return oneFrameOfDCTBlocks;
 	}
 
 
+	/**
+	 * Number of DCTBlocks in one frame
+	 */
+	static int getNumOfDCTBlocks(CompressedVideo parentVideo) {
+		return parentVideo.frameSizePadded / (parentVideo.dctBlockSize * parentVideo.dctBlockSize);
+	}
 	
-	int getX(CompressedVideo parentVideo, int blockNum) {
+	/**
+	 * Number of coefficients in one DCTBlock, counting all three channels
+	 */
+	static int getBlockLength(CompressedVideo parentVideo) {
+		return CompressedVideo.NUM_CHANNELS_RGB * parentVideo.dctBlockSize * parentVideo.dctBlockSize;
+	}
+
+	static int getX(CompressedVideo parentVideo, int blockNum) {
 		int numBlocksPerRow = parentVideo.frameWidthPadded / parentVideo.dctBlockSize;
 		return ((blockNum % numBlocksPerRow) * parentVideo.dctBlockSize) + (parentVideo.dctBlockSize/2);
 	}
 
 
-	int getY(CompressedVideo parentVideo, int blockNum) {
+	static int getY(CompressedVideo parentVideo, int blockNum) {
 		int numBlocksPerRow = parentVideo.frameWidthPadded / parentVideo.dctBlockSize;
 		return ((blockNum / numBlocksPerRow) * parentVideo.dctBlockSize) + (parentVideo.dctBlockSize/2);
 	}
 
-	int getTopLeftX(CompressedVideo parentVideo, int blockNum) {
+	static int getTopLeftX(CompressedVideo parentVideo, int blockNum) {
 		int numBlocksPerRow = parentVideo.frameWidthPadded / parentVideo.dctBlockSize;
 		return ((blockNum % numBlocksPerRow) * parentVideo.dctBlockSize);
 	}
 
-	int getTopLeftY(CompressedVideo parentVideo, int blockNum) {
+	static int getTopLeftY(CompressedVideo parentVideo, int blockNum) {
 		int numBlocksPerRow = parentVideo.frameWidthPadded / parentVideo.dctBlockSize;
 		return ((blockNum / numBlocksPerRow) * parentVideo.dctBlockSize);
 	}
 
+	/**
+	 * Computes the pixel values of the DCT coefficients of the last block given to quantizeCoefficients,
+	 * which then becomes pending. A channel with only a DC coefficient is filled with one value, and a
+	 * channel whose nonzero coefficients are all in the first few rows and columns gets a reduced IDCT,
+	 * see DctEngine.inverse. Both give the same pixels as the full IDCT. FLOAT channels that need the
+	 * full IDCT are added to batch and transformed by writeBatchToImage. The path each channel takes
+	 * is counted in the video's idctStats
+	 */
 	void dctToIDCT(CompressedVideo parentVid) {
-		float[][][] tempDCTCoefTable = new float[CompressedVideo.NUM_CHANNELS_RGB][parentVid.dctBlockSize][parentVid.dctBlockSize]; 
-		final float scaleFactor = (2f / parentVid.dctBlockSize);
-		final float ZERO_INDEX_FACTOR = (float) (1 / Math.sqrt(2));
-		
+		final int n = parentVid.dctBlockSize;
+		final int channelLength = n * n;
+		final boolean fixedPoint = parentVid.coefficientFormat == CoefficientFormat.FIXED_POINT;
+
 		for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
-			for (int x = 0; x < parentVid.dctBlockSize; x++) {
-				for (int y = 0; y < parentVid.dctBlockSize; y++) {
-					float result = 0;
-					for (int u = 0; u < parentVid.dctBlockSize; u++) {
-						for (int v = 0; v < parentVid.dctBlockSize; v++) {
-							float fuvVal = dctCoefficients[channelNum][u][v];
-							float partialResult = (fuvVal * parentVid.cosTable[u][x] * parentVid.cosTable[v][y]);
-							if (u == 0) {
-								partialResult *= ZERO_INDEX_FACTOR;
-							}
-							if (v == 0) {
-								partialResult *= ZERO_INDEX_FACTOR;
-							}							
-							result += partialResult;
-						}
+			int channel = (numOfPending * CompressedVideo.NUM_CHANNELS_RGB) + channelNum;
+			int offset = channel * channelLength;
+			int rows = numRows[channel];
+			int columns = numColumns[channel];
+			if ((rows <= 1) && (columns <= 1)) {
+				if (fixedPoint) {
+					Arrays.fill(fixedPixels, offset, offset + channelLength, FixedPointDct.inverseDC(fixedCoefficients[offset]));
+				}
+				else {
+					Arrays.fill(pixels, offset, offset + channelLength, parentVid.dctEngine.inverseDC(dctCoefficients[offset]));
+				}
+				parentVid.idctStats.dcOnly.increment();
+				continue;
+			}
+			if ((rows < n) || (columns < n)) {
+				parentVid.idctStats.sparse.increment();
+			}
+			else {
+				parentVid.idctStats.full.increment();
+				if (!fixedPoint) {
+					for (int i = 0; i < channelLength; i++) {
+						batch[i][numOfBatched] = dctCoefficients[offset + i];
 					}
-					result *= scaleFactor;
-					if (result > 255) result = 255;
-					if (result < 0) result = 0;
-					tempDCTCoefTable[channelNum][x][y] = result;
+					batchOffsets[numOfBatched++] = offset;
+					continue;
 				}
 			}
+			rows = Math.max(rows, 1);
+			columns = Math.max(columns, 1);
+			if (fixedPoint) {
+				FixedPointDct.inverse(fixedCoefficients, offset, fixedPixels, offset, rows, columns);
+			}
+			else {
+				parentVid.dctEngine.inverse(dctCoefficients, offset, pixels, offset, rows, columns);
+			}
 		}
-		dctCoefficients = tempDCTCoefTable;
+		numOfPending++;
 		
 	}
 
-	
-	void quantizeCoefficients(CompressedVideo video, int quant, DCTBlock curDCTBlock) {
-		for (int channel = 0; channel < CompressedVideo.NUM_CHANNELS_RGB; channel++) {
-			for (int j = 0; j < video.dctBlockSize; j++) {
-				for (int k = 0; k < video.dctBlockSize; k++) {
-					// this next statement emulates DCT quantization
-					dctCoefficients[channel][j][k] = 
-							Math.round(curDCTBlock.dctCoefficients[channel][j][k] / quant) * quant;
+	/**
+	 * True when no more blocks can be added until writeBatchToImage is called
+	 */
+	boolean isBatchFull() {
+		return numOfPending == MAX_PENDING;
+	}
+
+	/**
+	 * Finishes the IDCT of the pending blocks, writes them to an image, and adds them to the video's
+	 * tileCache, after which there are no pending blocks
+	 * @param video parent CompressedVideo
+	 * @param frameNum frame the blocks are from
+	 * @param imagePixels pixels of a frameWidth by frameHeight TYPE_INT_RGB image, one row after the other
+	 */
+	void writeBatchToImage(CompressedVideo video, int frameNum, int[] imagePixels) {
+		if (numOfBatched > 0) {
+			final int channelLength = batch.length;
+			video.dctEngine.inverseBatch(batch, numOfBatched);
+			for (int b = 0; b < numOfBatched; b++) {
+				int offset = batchOffsets[b];
+				for (int i = 0; i < channelLength; i++) {
+					pixels[offset + i] = batch[i][b];
 				}
 			}
+			numOfBatched = 0;
 		}
-		
+		for (int p = 0; p < numOfPending; p++) {
+			packTile(video, p);
+			if (video.tileCache != null) {
+				video.tileCache.put(frameNum, pendingBlockNums[p], pendingQuants[p], tile);
+			}
+			writeTile(video, pendingBlockNums[p], tile, 0, imagePixels);
+		}
+		numOfPending = 0;
 	}
 
-	void writeToImage(CompressedVideo video, DCTBlock curDCTBlock,
-		int dctBlockNum, BufferedImage curFrameImage) {
 	
-		int topLeftCornerX = curDCTBlock.getTopLeftX(video, dctBlockNum);
-		int topLeftCornerY = curDCTBlock.getTopLeftY(video, dctBlockNum);
-		for (int x = 0; x < video.dctBlockSize; x++) {
-			for (int y = 0; y < video.dctBlockSize; y++) {
-			
-				if (topLeftCornerX + x < video.frameWidth && topLeftCornerY + y < video.frameHeight) {
-					byte r = (byte) dctCoefficients[CompressedVideo.Channel.RED.getColorNum()][x][y];
-					byte g = (byte) dctCoefficients[CompressedVideo.Channel.GREEN.getColorNum()][x][y];
-					byte b = (byte) dctCoefficients[CompressedVideo.Channel.BLUE.getColorNum()][x][y];
-	
-					int pix = 0xff000000 | ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
-					curFrameImage.setRGB(topLeftCornerX + x, topLeftCornerY + y, pix);
+	/**
+	 * Copies one block's coefficients from a frame into the next pending place, rounded to the
+	 * nearest multiple of quant, and finds numRows and numColumns for each channel
+	 * @param video parent CompressedVideo
+	 * @param quant quantization value
+	 * @param frame video frame
+	 * @param dctBlockNum block number
+	 */
+	void quantizeCoefficients(CompressedVideo video, int quant, VideoFrame frame, int dctBlockNum) {
+		final int n = video.dctBlockSize;
+		final int channelLength = n * n;
+		final int blockOffset = dctBlockNum * getBlockLength(video);
+		final int pendingOffset = numOfPending * getBlockLength(video);
+		final boolean fixedPoint = video.coefficientFormat == CoefficientFormat.FIXED_POINT;
+		// coefficients smaller than this always quantize to 0, most of them are, and they can skip the divide and round
+		final float zeroBound = quant * ZERO_BOUND_FACTOR;
+
+		pendingBlockNums[numOfPending] = dctBlockNum;
+		pendingQuants[numOfPending] = quant;
+		for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+			int offset = channelNum * channelLength;
+			int channel = (numOfPending * CompressedVideo.NUM_CHANNELS_RGB) + channelNum;
+			int rows = 0;
+			int columns = 0;
+			for (int u = 0; u < n; u++) {
+				int row = offset + (u * n);
+				int rowColumns = 0;
+				if (fixedPoint) {
+					for (int v = 0; v < n; v++) {
+						short coefficient = FixedPointDct.quantize(frame.fixedCoefficients[blockOffset + row + v], quant);
+						fixedCoefficients[pendingOffset + row + v] = coefficient;
+						if (coefficient != 0) rowColumns = v + 1;
+					}
+				}
+				else {
+					for (int v = 0; v < n; v++) {
+						float coefficient = frame.dctCoefficients[blockOffset + row + v];
+						if (Math.abs(coefficient) < zeroBound) {
+							dctCoefficients[pendingOffset + row + v] = 0;
+							continue;
+						}
+						// this next statement emulates DCT quantization
+						coefficient = Math.round(coefficient / quant) * quant;
+						dctCoefficients[pendingOffset + row + v] = coefficient;
+						if (coefficient != 0) rowColumns = v + 1;
+					}
+				}
+				if (rowColumns > 0) {
+					rows = u + 1;
+					columns = Math.max(columns, rowColumns);
 				}
 			}
+			numRows[channel] = rows;
+			numColumns[channel] = columns;
 		}
 		
 	}
 
-	private float[][][] getDCT(CompressedVideo parentVid, int frameNum, int topLeftRow, int topLeftCol) {
-		
-		float[][][] dctCoefTable = new float[CompressedVideo.NUM_CHANNELS_RGB][parentVid.dctBlockSize][parentVid.dctBlockSize]; 
-		final float scaleFactor = (2f / parentVid.dctBlockSize);
-		final float ZERO_INDEX_FACTOR = (float) (1 / Math.sqrt(2));
-		
-		for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
-			CompressedVideo.Channel channel = CompressedVideo.Channel.getChannel(channelNum);
-			for (int u = 0; u < parentVid.dctBlockSize; u++) {
-				for (int v = 0; v < parentVid.dctBlockSize; v++) {
-					float result = 0;
-					for (int x = 0; x < parentVid.dctBlockSize; x++) {
-						for (int y = 0; y < parentVid.dctBlockSize; y++) {
-							byte fxyVal = parentVid.getOneByte(frameNum, channel, topLeftRow + y, topLeftCol + x);
-							result += ((fxyVal & 0xff) * parentVid.cosTable[u][x] * parentVid.cosTable[v][y]);
-						}
-					}
-					if (u == 0) {
-						result *= ZERO_INDEX_FACTOR;
-					}
-					if (v == 0) {
-						result *= ZERO_INDEX_FACTOR;
-					}
-					result *= scaleFactor;
-					dctCoefTable[channelNum][u][v] = result;
+	/**
+	 * Packs the pixel values of a pending block into tile, clamped to 0-255
+	 * @param video parent CompressedVideo
+	 * @param pendingNum place of the block in pixels or fixedPixels
+	 */
+	void packTile(CompressedVideo video, int pendingNum) {
+	
+		final int n = video.dctBlockSize;
+		final int channelLength = n * n;
+		final int redOffset = pendingNum * getBlockLength(video);
+		final int greenOffset = redOffset + (CompressedVideo.Channel.GREEN.getColorNum() * channelLength);
+		final int blueOffset = redOffset + (CompressedVideo.Channel.BLUE.getColorNum() * channelLength);
+		final boolean fixedPoint = video.coefficientFormat == CoefficientFormat.FIXED_POINT;
+		for (int y = 0; y < n; y++) {
+			for (int x = 0; x < n; x++) {
+				int index = (x * n) + y;
+				int r;
+				int g;
+				int b;
+				if (fixedPoint) {
+					r = clamp(fixedPixels[redOffset + index]);
+					g = clamp(fixedPixels[greenOffset + index]);
+					b = clamp(fixedPixels[blueOffset + index]);
+				}
+				else {
+					r = clamp(pixels[redOffset + index]);
+					g = clamp(pixels[greenOffset + index]);
+					b = clamp(pixels[blueOffset + index]);
 				}
+				tile[(y * n) + x] = (r << 16) | (g << 8) | b;
 			}
 		}
 		
-		return dctCoefTable;
 	}
 
+	private static int clamp(int value) {
+		if (value > 255) value = 255;
+		if (value < 0) value = 0;
+		return value;
+	}
+
+	private static int clamp(float value) {
+		if (value > 255) value = 255;
+		if (value < 0) value = 0;
+		return (int) value;
+	}
+
+	/**
+	 * Writes a block's pixels from the frame store to an image, leaving out the padding. Used
+	 * instead of the transforms for blocks with a quantization value of 1, where they would
+	 * give back the same pixels apart from rounding
+	 * @param video parent CompressedVideo
+	 * @param frameNum frame number, must be available from the frame store, see FrameStore.hasFrame
+	 * @param dctBlockNum block number
+	 * @param imagePixels pixels of a frameWidth by frameHeight TYPE_INT_RGB image, one row after the other
+	 */
+	static void writeSourceToImage(CompressedVideo video, int frameNum, int dctBlockNum, int[] imagePixels) {
+		int topLeftCornerX = getTopLeftX(video, dctBlockNum);
+		int topLeftCornerY = getTopLeftY(video, dctBlockNum);
+		int width = Math.min(video.dctBlockSize, video.frameWidth - topLeftCornerX);
+		int height = Math.min(video.dctBlockSize, video.frameHeight - topLeftCornerY);
+		if (width <= 0) {
+			return; //block is all padding
+		}
+		for (int y = 0; y < height; y++) {
+			int row = topLeftCornerY + y;
+			video.frameStore.getRGB(frameNum, row, topLeftCornerX, imagePixels, (row * video.frameWidth) + topLeftCornerX, width);
+		}
+	}
+
+	/**
+	 * Writes a packed tile to an image, leaving out the padding
+	 * @param video parent CompressedVideo
+	 * @param dctBlockNum block number
+	 * @param tile packed RGB pixels, see packTile
+	 * @param tileOffset index of the tile's first pixel
+	 * @param imagePixels pixels of a frameWidth by frameHeight TYPE_INT_RGB image, one row after the other
+	 */
+	static void writeTile(CompressedVideo video, int dctBlockNum, int[] tile, int tileOffset, int[] imagePixels) {
+		int topLeftCornerX = getTopLeftX(video, dctBlockNum);
+		int topLeftCornerY = getTopLeftY(video, dctBlockNum);
+		int width = Math.min(video.dctBlockSize, video.frameWidth - topLeftCornerX);
+		int height = Math.min(video.dctBlockSize, video.frameHeight - topLeftCornerY);
+		if (width <= 0) {
+			return; //block is all padding
+		}
+		for (int y = 0; y < height; y++) {
+			System.arraycopy(tile, tileOffset + (y * video.dctBlockSize), imagePixels, 
+					((topLeftCornerY + y) * video.frameWidth) + topLeftCornerX, width);
+		}
+	}
 	
+	/**
+	 * How DCT coefficients are represented and transformed. FLOAT uses float coefficients and the
+	 * video's DctEngine, FIXED_POINT uses short coefficients and the integer transform in the
+	 * FixedPointDct class, which gives the same result everywhere, and only supports 8x8 blocks
+	 */
+	enum CoefficientFormat {
+		FLOAT, FIXED_POINT
+	}
 	
 }
-
@@ -0,0 +1,147 @@
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * DctEngine that passes every call to the chosen engine and, for one call in
+ * every sampleInterval, also runs the reference engine on the same input and
+ * keeps the largest difference seen, so a faster engine can be checked on
+ * real video. Turned on with -Dvcs.dctCheckInterval, see
+ * VideoCompressionSimulation class, and reported with getStats.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class DctCrossCheck implements DctEngine {
+
+	private final DctEngine engine;
+	private final DctEngine reference;
+	private final int dctBlockSize;
+	private final int sampleInterval;
+	private final AtomicLong numOfCalls = new AtomicLong();
+	private final ThreadLocal<float[]> expectedBuffers; //reference engine results, one per thread
+	private final ThreadLocal<float[][]> sampleBuffers; //inputs of the sampled blocks of a batch, one per thread
+	private long numOfForwardSamples;
+	private long numOfInverseSamples;
+	private float maxForwardError;
+	private float maxInverseError;
+
+	/**
+	 * @param engine engine that is checked
+	 * @param reference engine that is trusted
+	 * @param dctBlockSize length of a side of a block
+	 * @param sampleInterval number of calls per check
+	 */
+	DctCrossCheck(DctEngine engine, DctEngine reference, int dctBlockSize, int sampleInterval) {
+		this.engine = engine;
+		this.reference = reference;
+		this.dctBlockSize = dctBlockSize;
+		this.sampleInterval = sampleInterval;
+		expectedBuffers = ThreadLocal.withInitial(() -> new float[dctBlockSize * dctBlockSize]);
+		sampleBuffers = ThreadLocal.withInitial(() -> new float[BATCH_SIZE][dctBlockSize * dctBlockSize]);
+	}
+
+	@Override
+	public void forward(float[] pixels, int pixelOffset, float[] coefficients, int coefficientOffset) {
+		engine.forward(pixels, pixelOffset, coefficients, coefficientOffset);
+		if (isSampled()) {
+			float[] expected = expectedBuffers.get();
+			reference.forward(pixels, pixelOffset, expected, 0);
+			float error = getMaxError(expected, coefficients, coefficientOffset);
+			synchronized (this) {
+				numOfForwardSamples++;
+				maxForwardError = Math.max(maxForwardError, error);
+			}
+		}
+	}
+
+	@Override
+	public void inverse(float[] coefficients, int coefficientOffset, float[] pixels, int pixelOffset, int numRows, int numColumns) {
+		engine.inverse(coefficients, coefficientOffset, pixels, pixelOffset, numRows, numColumns);
+		if (isSampled()) {
+			float[] expected = expectedBuffers.get();
+			reference.inverse(coefficients, coefficientOffset, expected, 0, dctBlockSize, dctBlockSize);
+			float error = getMaxError(expected, pixels, pixelOffset);
+			synchronized (this) {
+				numOfInverseSamples++;
+				maxInverseError = Math.max(maxInverseError, error);
+			}
+		}
+	}
+
+	@Override
+	public float inverseDC(float dcCoefficient) {
+		return engine.inverseDC(dcCoefficient);
+	}
+
+	@Override
+	public void forwardBatch(float[][] blocks, int numOfBlocks) {
+		int firstSample = getFirstSample(numOfBlocks);
+		float[][] samples = sampleBuffers.get();
+		for (int b = firstSample; b < numOfBlocks; b += sampleInterval) {
+			ReferenceDctEngine.getBlock(blocks, b, samples[b]);
+		}
+		engine.forwardBatch(blocks, numOfBlocks);
+		for (int b = firstSample; b < numOfBlocks; b += sampleInterval) {
+			float[] expected = expectedBuffers.get();
+			reference.forward(samples[b], 0, expected, 0);
+			ReferenceDctEngine.getBlock(blocks, b, samples[b]);
+			float error = getMaxError(expected, samples[b], 0);
+			synchronized (this) {
+				numOfForwardSamples++;
+				maxForwardError = Math.max(maxForwardError, error);
+			}
+		}
+	}
+
+	@Override
+	public void inverseBatch(float[][] blocks, int numOfBlocks) {
+		int firstSample = getFirstSample(numOfBlocks);
+		float[][] samples = sampleBuffers.get();
+		for (int b = firstSample; b < numOfBlocks; b += sampleInterval) {
+			ReferenceDctEngine.getBlock(blocks, b, samples[b]);
+		}
+		engine.inverseBatch(blocks, numOfBlocks);
+		for (int b = firstSample; b < numOfBlocks; b += sampleInterval) {
+			float[] expected = expectedBuffers.get();
+			reference.inverse(samples[b], 0, expected, 0, dctBlockSize, dctBlockSize);
+			ReferenceDctEngine.getBlock(blocks, b, samples[b]);
+			float error = getMaxError(expected, samples[b], 0);
+			synchronized (this) {
+				numOfInverseSamples++;
+				maxInverseError = Math.max(maxInverseError, error);
+			}
+		}
+	}
+
+	/**
+	 * Number of blocks checked and largest differences from the reference engine
+	 */
+	synchronized String getStats() {
+		return "DCT cross-check: " + numOfForwardSamples + " forward blocks, max error " + maxForwardError + ", " +
+				numOfInverseSamples + " inverse blocks, max error " + maxInverseError;
+	}
+
+	private boolean isSampled() {
+		return (numOfCalls.incrementAndGet() % sampleInterval) == 0;
+	}
+
+	/**
+	 * Counts a batch as one call per block, and gives the first block of the batch that is
+	 * sampled, the next ones are sampleInterval apart, or numOfBlocks if none are
+	 */
+	private int getFirstSample(int numOfBlocks) {
+		long lastCall = numOfCalls.addAndGet(numOfBlocks);
+		long firstCall = lastCall - numOfBlocks + 1;
+		int firstSample = (int) ((sampleInterval - (firstCall % sampleInterval)) % sampleInterval);
+		return Math.min(firstSample, numOfBlocks);
+	}
+
+	private float getMaxError(float[] expected, float[] actual, int offset) {
+		float maxError = 0;
+		for (int i = 0; i < expected.length; i++) {
+			maxError = Math.max(maxError, Math.abs(expected[i] - actual[offset + i]));
+		}
+		return maxError;
+	}
+
+}
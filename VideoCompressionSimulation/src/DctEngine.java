@@ -0,0 +1,99 @@
+/**
+ * Interface for the 2D DCT (Discrete Cosine Transform) and IDCT used by the
+ * DCTBlock class. Blocks are square, dctBlockSize on a side, and stored flat
+ * starting at an offset, at (x * dctBlockSize) + y for pixels and
+ * (u * dctBlockSize) + v for coefficients, where u goes with x and v goes
+ * with y. Coefficients are scaled so that
+ * F(u,v) = (2/N) C(u) C(v) sum over x, y of f(x,y) cos((2x+1)u pi/2N) cos((2y+1)v pi/2N),
+ * with C(0) = 1/sqrt(2) and C(k) = 1 otherwise. Several blocks can also be
+ * transformed in one call, see forwardBatch. Engines do not keep per block
+ * state and may be called from several threads at once. The engine is
+ * chosen at startup with Kind, see VideoCompressionSimulation class.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+interface DctEngine {
+
+	/**
+	 * Largest number of blocks in one forwardBatch or inverseBatch call
+	 */
+	int BATCH_SIZE = 64;
+
+	/**
+	 * Forward transform of one channel of a block
+	 * @param pixels pixel values
+	 * @param pixelOffset index of the block's first pixel
+	 * @param coefficients destination for the DCT coefficients
+	 * @param coefficientOffset index of the block's first coefficient
+	 */
+	void forward(float[] pixels, int pixelOffset, float[] coefficients, int coefficientOffset);
+
+	/**
+	 * Inverse transform of one channel of a block, the result is not rounded or clamped. Only the
+	 * first numRows rows (u) and numColumns columns (v) of coefficients can be nonzero, engines
+	 * skip the work for the rest but give the same result as for a full block
+	 * @param coefficients DCT coefficients
+	 * @param coefficientOffset index of the block's first coefficient
+	 * @param pixels destination for the pixel values
+	 * @param pixelOffset index of the block's first pixel
+	 * @param numRows number of rows that can have nonzero coefficients, 1 to dctBlockSize
+	 * @param numColumns number of columns that can have nonzero coefficients, 1 to dctBlockSize
+	 */
+	void inverse(float[] coefficients, int coefficientOffset, float[] pixels, int pixelOffset, int numRows, int numColumns);
+
+	/**
+	 * Inverse transform of a block where every coefficient but the DC one is zero, which
+	 * gives the same value for every pixel
+	 * @param dcCoefficient coefficient at u = 0, v = 0
+	 * @return value of every pixel, the same as inverse would give
+	 */
+	float inverseDC(float dcCoefficient);
+
+	/**
+	 * Forward transform of several blocks in place. The blocks are stored transposed, value i of
+	 * block b, which is at (x * dctBlockSize) + y or (u * dctBlockSize) + v like above, is at
+	 * blocks[i][b], so each step of the transform is done for every block before the next step
+	 * and every constant it uses is loaded once per batch. Gives the same result as forward
+	 * @param blocks dctBlockSize * dctBlockSize arrays of at least numOfBlocks values, pixel values
+	 * in and DCT coefficients out
+	 * @param numOfBlocks number of blocks, 1 to BATCH_SIZE
+	 */
+	void forwardBatch(float[][] blocks, int numOfBlocks);
+
+	/**
+	 * Inverse transform of several blocks in place, stored like in forwardBatch. Gives the same
+	 * result as inverse of the whole block
+	 * @param blocks dctBlockSize * dctBlockSize arrays of at least numOfBlocks values, DCT
+	 * coefficients in and pixel values out
+	 * @param numOfBlocks number of blocks, 1 to BATCH_SIZE
+	 */
+	void inverseBatch(float[][] blocks, int numOfBlocks);
+
+	/**
+	 * Available engines
+	 */
+	enum Kind {
+		REFERENCE, //four-deep loop straight from the definition, N^4 multiply-adds per block
+		SEPARABLE, //1D transforms over y then x, N^3 multiply-adds per block
+		FAST; //AAN butterflies for 8x8 blocks, 80 multiplies per 8x8 block
+
+		/**
+		 * Creates an engine of this kind
+		 * @param dctBlockSize length of a side of a block
+		 * @param cosTable see DCTBlock.initCosTable
+		 * @return new engine
+		 */
+		DctEngine create(int dctBlockSize, float[][] cosTable) {
+			switch (this) {
+			case REFERENCE:
+				return new ReferenceDctEngine(dctBlockSize, cosTable);
+			case SEPARABLE:
+				return new SeparableDctEngine(dctBlockSize, cosTable);
+			default:
+				return new FastDctEngine(dctBlockSize);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,359 @@
+import java.util.Arrays;
+
+
+/**
+ * DctEngine for 8x8 blocks using the Arai, Agui, and Nakajima (AAN) butterfly
+ * network, the same factorization as the float DCT in the Independent JPEG
+ * Group's library. Each 1D 8 point transform takes 5 multiplies, and the
+ * per coefficient scaling the network leaves behind is folded into one table
+ * multiply per coefficient at the end of the forward transform and the start
+ * of the inverse transform. Both transforms work in place in the destination
+ * block, so no work space is needed.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class FastDctEngine implements DctEngine {
+
+	private static final int N = 8;
+
+	//butterfly constants
+	private static final float C4 = 0.707106781f; //cos(4 pi/16)
+	private static final float C6_MINUS_C2 = 0.382683433f; //cos(6 pi/16)
+	private static final float C2_MINUS_C6 = 0.541196100f; //cos(2 pi/16) - cos(6 pi/16)
+	private static final float C2_PLUS_C6 = 1.306562965f; //cos(2 pi/16) + cos(6 pi/16)
+	private static final float TWO_C4 = 1.414213562f;
+	private static final float TWO_C2 = 1.847759065f;
+	private static final float TWO_C2_MINUS_C6 = 1.082392200f;
+	private static final float TWO_C2_PLUS_C6 = 2.613125930f;
+
+	/**
+	 * Multiplies for the output of the forward network and the input of the inverse network, [u * N + v]
+	 */
+	private final float[] forwardScale = new float[N * N];
+	private final float[] inverseScale = new float[N * N];
+
+	FastDctEngine(int dctBlockSize) {
+		if (dctBlockSize != N) {
+			throw new IllegalArgumentException("FAST DCT engine only supports " + N + "x" + N + " blocks");
+		}
+		double[] aanScale = new double[N];
+		for (int k = 0; k < N; k++) {
+			aanScale[k] = (k == 0) ? 1 : Math.sqrt(2) * Math.cos((k * Math.PI) / 16);
+		}
+		for (int u = 0; u < N; u++) {
+			for (int v = 0; v < N; v++) {
+				forwardScale[(u * N) + v] = (float) (1 / (aanScale[u] * aanScale[v] * N));
+				inverseScale[(u * N) + v] = (float) ((aanScale[u] * aanScale[v]) / N);
+			}
+		}
+	}
+
+	@Override
+	public void forward(float[] pixels, int pixelOffset, float[] coefficients, int coefficientOffset) {
+		System.arraycopy(pixels, pixelOffset, coefficients, coefficientOffset, N * N);
+		for (int x = 0; x < N; x++) {
+			forward1D(coefficients, coefficientOffset + (x * N), 1);
+		}
+		for (int v = 0; v < N; v++) {
+			forward1D(coefficients, coefficientOffset + v, N);
+		}
+		for (int i = 0; i < N * N; i++) {
+			coefficients[coefficientOffset + i] *= forwardScale[i];
+		}
+	}
+
+	@Override
+	public void inverse(float[] coefficients, int coefficientOffset, float[] pixels, int pixelOffset, int numRows, int numColumns) {
+		for (int i = 0; i < N * N; i++) {
+			pixels[pixelOffset + i] = coefficients[coefficientOffset + i] * inverseScale[i];
+		}
+		//rows past numRows are all zero and stay that way, a row with only a DC term becomes that term
+		for (int u = 0; u < numRows; u++) {
+			if (numColumns == 1) {
+				Arrays.fill(pixels, pixelOffset + (u * N) + 1, pixelOffset + ((u + 1) * N), pixels[pixelOffset + (u * N)]);
+			}
+			else {
+				inverse1D(pixels, pixelOffset + (u * N), 1);
+			}
+		}
+		for (int y = 0; y < N; y++) {
+			if (numRows == 1) {
+				for (int x = 1; x < N; x++) {
+					pixels[pixelOffset + (x * N) + y] = pixels[pixelOffset + y];
+				}
+			}
+			else {
+				inverse1D(pixels, pixelOffset + y, N);
+			}
+		}
+	}
+
+	@Override
+	public float inverseDC(float dcCoefficient) {
+		return dcCoefficient * inverseScale[0];
+	}
+
+	@Override
+	public void forwardBatch(float[][] blocks, int numOfBlocks) {
+		for (int x = 0; x < N; x++) {
+			forward1D(blocks, x * N, 1, numOfBlocks);
+		}
+		for (int v = 0; v < N; v++) {
+			forward1D(blocks, v, N, numOfBlocks);
+		}
+		for (int i = 0; i < N * N; i++) {
+			float[] values = blocks[i];
+			float scale = forwardScale[i];
+			for (int b = 0; b < numOfBlocks; b++) {
+				values[b] *= scale;
+			}
+		}
+	}
+
+	@Override
+	public void inverseBatch(float[][] blocks, int numOfBlocks) {
+		for (int i = 0; i < N * N; i++) {
+			float[] values = blocks[i];
+			float scale = inverseScale[i];
+			for (int b = 0; b < numOfBlocks; b++) {
+				values[b] *= scale;
+			}
+		}
+		for (int u = 0; u < N; u++) {
+			inverse1D(blocks, u * N, 1, numOfBlocks);
+		}
+		for (int y = 0; y < N; y++) {
+			inverse1D(blocks, y, N, numOfBlocks);
+		}
+	}
+
+	/**
+	 * Unscaled 8 point forward DCT in place
+	 * @param data values
+	 * @param offset index of the first value
+	 * @param stride distance between values
+	 */
+	private static void forward1D(float[] data, int offset, int stride) {
+		float d0 = data[offset];
+		float d1 = data[offset + stride];
+		float d2 = data[offset + (2 * stride)];
+		float d3 = data[offset + (3 * stride)];
+		float d4 = data[offset + (4 * stride)];
+		float d5 = data[offset + (5 * stride)];
+		float d6 = data[offset + (6 * stride)];
+		float d7 = data[offset + (7 * stride)];
+
+		float tmp0 = d0 + d7;
+		float tmp7 = d0 - d7;
+		float tmp1 = d1 + d6;
+		float tmp6 = d1 - d6;
+		float tmp2 = d2 + d5;
+		float tmp5 = d2 - d5;
+		float tmp3 = d3 + d4;
+		float tmp4 = d3 - d4;
+
+		//even part
+		float tmp10 = tmp0 + tmp3;
+		float tmp13 = tmp0 - tmp3;
+		float tmp11 = tmp1 + tmp2;
+		float tmp12 = tmp1 - tmp2;
+		data[offset] = tmp10 + tmp11;
+		data[offset + (4 * stride)] = tmp10 - tmp11;
+		float z1 = (tmp12 + tmp13) * C4;
+		data[offset + (2 * stride)] = tmp13 + z1;
+		data[offset + (6 * stride)] = tmp13 - z1;
+
+		//odd part
+		tmp10 = tmp4 + tmp5;
+		tmp11 = tmp5 + tmp6;
+		tmp12 = tmp6 + tmp7;
+		float z5 = (tmp10 - tmp12) * C6_MINUS_C2;
+		float z2 = (C2_MINUS_C6 * tmp10) + z5;
+		float z4 = (C2_PLUS_C6 * tmp12) + z5;
+		float z3 = tmp11 * C4;
+		float z11 = tmp7 + z3;
+		float z13 = tmp7 - z3;
+		data[offset + (5 * stride)] = z13 + z2;
+		data[offset + (3 * stride)] = z13 - z2;
+		data[offset + stride] = z11 + z4;
+		data[offset + (7 * stride)] = z11 - z4;
+	}
+
+	/**
+	 * Unscaled 8 point inverse DCT in place
+	 * @param data values
+	 * @param offset index of the first value
+	 * @param stride distance between values
+	 */
+	private static void inverse1D(float[] data, int offset, int stride) {
+		//even part
+		float tmp0 = data[offset];
+		float tmp1 = data[offset + (2 * stride)];
+		float tmp2 = data[offset + (4 * stride)];
+		float tmp3 = data[offset + (6 * stride)];
+		float tmp10 = tmp0 + tmp2;
+		float tmp11 = tmp0 - tmp2;
+		float tmp13 = tmp1 + tmp3;
+		float tmp12 = ((tmp1 - tmp3) * TWO_C4) - tmp13;
+		tmp0 = tmp10 + tmp13;
+		tmp3 = tmp10 - tmp13;
+		tmp1 = tmp11 + tmp12;
+		tmp2 = tmp11 - tmp12;
+
+		//odd part
+		float tmp4 = data[offset + stride];
+		float tmp5 = data[offset + (3 * stride)];
+		float tmp6 = data[offset + (5 * stride)];
+		float tmp7 = data[offset + (7 * stride)];
+		float z13 = tmp6 + tmp5;
+		float z10 = tmp6 - tmp5;
+		float z11 = tmp4 + tmp7;
+		float z12 = tmp4 - tmp7;
+		tmp7 = z11 + z13;
+		tmp11 = (z11 - z13) * TWO_C4;
+		float z5 = (z10 + z12) * TWO_C2;
+		tmp10 = (TWO_C2_MINUS_C6 * z12) - z5;
+		tmp12 = (-TWO_C2_PLUS_C6 * z10) + z5;
+		tmp6 = tmp12 - tmp7;
+		tmp5 = tmp11 - tmp6;
+		tmp4 = tmp10 + tmp5;
+
+		data[offset] = tmp0 + tmp7;
+		data[offset + (7 * stride)] = tmp0 - tmp7;
+		data[offset + stride] = tmp1 + tmp6;
+		data[offset + (6 * stride)] = tmp1 - tmp6;
+		data[offset + (2 * stride)] = tmp2 + tmp5;
+		data[offset + (5 * stride)] = tmp2 - tmp5;
+		data[offset + (4 * stride)] = tmp3 + tmp4;
+		data[offset + (3 * stride)] = tmp3 - tmp4;
+	}
+
+	/**
+	 * Unscaled 8 point forward DCT in place for several blocks stored like in forwardBatch,
+	 * the same steps as forward1D done for each block
+	 * @param blocks values
+	 * @param index index of the first value
+	 * @param stride distance between values
+	 * @param numOfBlocks number of blocks
+	 */
+	private static void forward1D(float[][] blocks, int index, int stride, int numOfBlocks) {
+		float[] data0 = blocks[index];
+		float[] data1 = blocks[index + stride];
+		float[] data2 = blocks[index + (2 * stride)];
+		float[] data3 = blocks[index + (3 * stride)];
+		float[] data4 = blocks[index + (4 * stride)];
+		float[] data5 = blocks[index + (5 * stride)];
+		float[] data6 = blocks[index + (6 * stride)];
+		float[] data7 = blocks[index + (7 * stride)];
+
+		for (int b = 0; b < numOfBlocks; b++) {
+			float d0 = data0[b];
+			float d1 = data1[b];
+			float d2 = data2[b];
+			float d3 = data3[b];
+			float d4 = data4[b];
+			float d5 = data5[b];
+			float d6 = data6[b];
+			float d7 = data7[b];
+
+			float tmp0 = d0 + d7;
+			float tmp7 = d0 - d7;
+			float tmp1 = d1 + d6;
+			float tmp6 = d1 - d6;
+			float tmp2 = d2 + d5;
+			float tmp5 = d2 - d5;
+			float tmp3 = d3 + d4;
+			float tmp4 = d3 - d4;
+
+			//even part
+			float tmp10 = tmp0 + tmp3;
+			float tmp13 = tmp0 - tmp3;
+			float tmp11 = tmp1 + tmp2;
+			float tmp12 = tmp1 - tmp2;
+			data0[b] = tmp10 + tmp11;
+			data4[b] = tmp10 - tmp11;
+			float z1 = (tmp12 + tmp13) * C4;
+			data2[b] = tmp13 + z1;
+			data6[b] = tmp13 - z1;
+
+			//odd part
+			tmp10 = tmp4 + tmp5;
+			tmp11 = tmp5 + tmp6;
+			tmp12 = tmp6 + tmp7;
+			float z5 = (tmp10 - tmp12) * C6_MINUS_C2;
+			float z2 = (C2_MINUS_C6 * tmp10) + z5;
+			float z4 = (C2_PLUS_C6 * tmp12) + z5;
+			float z3 = tmp11 * C4;
+			float z11 = tmp7 + z3;
+			float z13 = tmp7 - z3;
+			data5[b] = z13 + z2;
+			data3[b] = z13 - z2;
+			data1[b] = z11 + z4;
+			data7[b] = z11 - z4;
+		}
+	}
+
+	/**
+	 * Unscaled 8 point inverse DCT in place for several blocks stored like in forwardBatch,
+	 * the same steps as inverse1D done for each block
+	 * @param blocks values
+	 * @param index index of the first value
+	 * @param stride distance between values
+	 * @param numOfBlocks number of blocks
+	 */
+	private static void inverse1D(float[][] blocks, int index, int stride, int numOfBlocks) {
+		float[] data0 = blocks[index];
+		float[] data1 = blocks[index + stride];
+		float[] data2 = blocks[index + (2 * stride)];
+		float[] data3 = blocks[index + (3 * stride)];
+		float[] data4 = blocks[index + (4 * stride)];
+		float[] data5 = blocks[index + (5 * stride)];
+		float[] data6 = blocks[index + (6 * stride)];
+		float[] data7 = blocks[index + (7 * stride)];
+
+		for (int b = 0; b < numOfBlocks; b++) {
+			//even part
+			float tmp0 = data0[b];
+			float tmp1 = data2[b];
+			float tmp2 = data4[b];
+			float tmp3 = data6[b];
+			float tmp10 = tmp0 + tmp2;
+			float tmp11 = tmp0 - tmp2;
+			float tmp13 = tmp1 + tmp3;
+			float tmp12 = ((tmp1 - tmp3) * TWO_C4) - tmp13;
+			tmp0 = tmp10 + tmp13;
+			tmp3 = tmp10 - tmp13;
+			tmp1 = tmp11 + tmp12;
+			tmp2 = tmp11 - tmp12;
+
+			//odd part
+			float tmp4 = data1[b];
+			float tmp5 = data3[b];
+			float tmp6 = data5[b];
+			float tmp7 = data7[b];
+			float z13 = tmp6 + tmp5;
+			float z10 = tmp6 - tmp5;
+			float z11 = tmp4 + tmp7;
+			float z12 = tmp4 - tmp7;
+			tmp7 = z11 + z13;
+			tmp11 = (z11 - z13) * TWO_C4;
+			float z5 = (z10 + z12) * TWO_C2;
+			tmp10 = (TWO_C2_MINUS_C6 * z12) - z5;
+			tmp12 = (-TWO_C2_PLUS_C6 * z10) + z5;
+			tmp6 = tmp12 - tmp7;
+			tmp5 = tmp11 - tmp6;
+			tmp4 = tmp10 + tmp5;
+
+			data0[b] = tmp0 + tmp7;
+			data7[b] = tmp0 - tmp7;
+			data1[b] = tmp1 + tmp6;
+			data6[b] = tmp1 - tmp6;
+			data2[b] = tmp2 + tmp5;
+			data5[b] = tmp2 - tmp5;
+			data4[b] = tmp3 + tmp4;
+			data3[b] = tmp3 - tmp4;
+		}
+	}
+
+}
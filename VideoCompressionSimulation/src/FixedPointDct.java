@@ -0,0 +1,252 @@
+import java.util.Arrays;
+
+
+/**
+ * Integer 8x8 DCT and IDCT for DCTBlocks in the FIXED_POINT coefficient
+ * format, see DCTBlock.CoefficientFormat. Uses the Loeffler, Ligtenberg, and
+ * Moschytz factorization with 13 bit constants, the same as the accurate
+ * integer DCT in the Independent JPEG Group's library, so there are 12
+ * multiplies per 1D transform, all intermediate values fit in an int, and
+ * coefficients fit in a short. Only integer arithmetic is used, so results
+ * are the same on every JVM and CPU. Coefficients are scaled like the
+ * DctEngine ones and rounded to the nearest integer.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class FixedPointDct {
+
+	static final int BLOCK_SIZE = 8;
+
+	private static final int CONST_BITS = 13;
+	private static final int PASS1_BITS = 2; //extra precision kept between the two passes
+	private static final int EXTRA_BITS = 3; //the 2D transform without scaling comes out 8 times too large
+
+	//sample values are shifted down by this so they are centered on 0, which moves the DC coefficient by 8 times as much
+	private static final int LEVEL_SHIFT = 128;
+	private static final int DC_LEVEL_SHIFT = LEVEL_SHIFT * BLOCK_SIZE;
+
+	//constants scaled by 2^CONST_BITS
+	private static final int FIX_0_298631336 = 2446;
+	private static final int FIX_0_390180644 = 3196;
+	private static final int FIX_0_541196100 = 4433;
+	private static final int FIX_0_765366865 = 6270;
+	private static final int FIX_0_899976223 = 7373;
+	private static final int FIX_1_175875602 = 9633;
+	private static final int FIX_1_501321110 = 12299;
+	private static final int FIX_1_847759065 = 15137;
+	private static final int FIX_1_961570560 = 16069;
+	private static final int FIX_2_053119869 = 16819;
+	private static final int FIX_2_562915447 = 20995;
+	private static final int FIX_3_072711026 = 25172;
+
+	private FixedPointDct() {
+	}
+
+	/**
+	 * Forward transform of one channel of a block, blocks are stored flat like in the DctEngine interface
+	 * @param pixels pixel values 0-255, used as work space and overwritten
+	 * @param pixelOffset index of the block's first pixel
+	 * @param coefficients destination for the DCT coefficients
+	 * @param coefficientOffset index of the block's first coefficient
+	 */
+	static void forward(int[] pixels, int pixelOffset, short[] coefficients, int coefficientOffset) {
+		for (int i = 0; i < BLOCK_SIZE * BLOCK_SIZE; i++) {
+			pixels[pixelOffset + i] -= LEVEL_SHIFT;
+		}
+		for (int x = 0; x < BLOCK_SIZE; x++) {
+			forward1D(pixels, pixelOffset + (x * BLOCK_SIZE), 1, 0, CONST_BITS - PASS1_BITS, PASS1_BITS);
+		}
+		for (int v = 0; v < BLOCK_SIZE; v++) {
+			forward1D(pixels, pixelOffset + v, BLOCK_SIZE, PASS1_BITS + EXTRA_BITS, CONST_BITS + PASS1_BITS + EXTRA_BITS, 0);
+		}
+		pixels[pixelOffset] += DC_LEVEL_SHIFT;
+		for (int i = 0; i < BLOCK_SIZE * BLOCK_SIZE; i++) {
+			coefficients[coefficientOffset + i] = (short) pixels[pixelOffset + i];
+		}
+	}
+
+	/**
+	 * Inverse transform of one channel of a block, the result is not clamped. Only the first numRows
+	 * rows (u) and numColumns columns (v) of coefficients can be nonzero, see DctEngine.inverse
+	 * @param coefficients DCT coefficients
+	 * @param coefficientOffset index of the block's first coefficient
+	 * @param pixels destination for the pixel values
+	 * @param pixelOffset index of the block's first pixel
+	 * @param numRows number of rows that can have nonzero coefficients, 1 to BLOCK_SIZE
+	 * @param numColumns number of columns that can have nonzero coefficients, 1 to BLOCK_SIZE
+	 */
+	static void inverse(short[] coefficients, int coefficientOffset, int[] pixels, int pixelOffset, int numRows, int numColumns) {
+		for (int i = 0; i < BLOCK_SIZE * BLOCK_SIZE; i++) {
+			pixels[pixelOffset + i] = coefficients[coefficientOffset + i];
+		}
+		pixels[pixelOffset] -= DC_LEVEL_SHIFT;
+		//rows past numRows are all zero and stay that way, a row with only a DC term becomes that term scaled
+		for (int u = 0; u < numRows; u++) {
+			int row = pixelOffset + (u * BLOCK_SIZE);
+			if (numColumns == 1) {
+				Arrays.fill(pixels, row, row + BLOCK_SIZE, descale(pixels[row] << CONST_BITS, CONST_BITS - PASS1_BITS));
+			}
+			else {
+				inverse1D(pixels, row, 1, CONST_BITS - PASS1_BITS);
+			}
+		}
+		for (int y = 0; y < BLOCK_SIZE; y++) {
+			if (numRows == 1) {
+				int value = descale(pixels[pixelOffset + y] << CONST_BITS, CONST_BITS + PASS1_BITS + EXTRA_BITS);
+				for (int x = 0; x < BLOCK_SIZE; x++) {
+					pixels[pixelOffset + (x * BLOCK_SIZE) + y] = value;
+				}
+			}
+			else {
+				inverse1D(pixels, pixelOffset + y, BLOCK_SIZE, CONST_BITS + PASS1_BITS + EXTRA_BITS);
+			}
+		}
+		for (int i = 0; i < BLOCK_SIZE * BLOCK_SIZE; i++) {
+			pixels[pixelOffset + i] += LEVEL_SHIFT;
+		}
+	}
+
+	/**
+	 * Inverse transform of a block where every coefficient but the DC one is zero
+	 * @param dcCoefficient coefficient at u = 0, v = 0
+	 * @return value of every pixel, the same as inverse would give
+	 */
+	static int inverseDC(short dcCoefficient) {
+		int value = descale((dcCoefficient - DC_LEVEL_SHIFT) << CONST_BITS, CONST_BITS - PASS1_BITS);
+		return descale(value << CONST_BITS, CONST_BITS + PASS1_BITS + EXTRA_BITS) + LEVEL_SHIFT;
+	}
+
+	/**
+	 * Rounds a coefficient to the nearest multiple of quant, halves round up like Math.round
+	 */
+	static short quantize(short coefficient, int quant) {
+		if ((2 * coefficient) >= -quant && (2 * coefficient) < quant) {
+			return 0; //most coefficients, no need to divide
+		}
+		return (short) (Math.floorDiv((2 * coefficient) + quant, 2 * quant) * quant);
+	}
+
+	/**
+	 * 8 point forward DCT in place
+	 * @param data values
+	 * @param offset index of the first value
+	 * @param stride distance between values
+	 * @param evenShift bits to drop from the outputs 0 and 4
+	 * @param shift bits to drop from the other outputs
+	 * @param evenScale bits to add to the outputs 0 and 4
+	 */
+	private static void forward1D(int[] data, int offset, int stride, int evenShift, int shift, int evenScale) {
+		int d0 = data[offset];
+		int d1 = data[offset + stride];
+		int d2 = data[offset + (2 * stride)];
+		int d3 = data[offset + (3 * stride)];
+		int d4 = data[offset + (4 * stride)];
+		int d5 = data[offset + (5 * stride)];
+		int d6 = data[offset + (6 * stride)];
+		int d7 = data[offset + (7 * stride)];
+
+		int tmp0 = d0 + d7;
+		int tmp7 = d0 - d7;
+		int tmp1 = d1 + d6;
+		int tmp6 = d1 - d6;
+		int tmp2 = d2 + d5;
+		int tmp5 = d2 - d5;
+		int tmp3 = d3 + d4;
+		int tmp4 = d3 - d4;
+
+		//even part
+		int tmp10 = tmp0 + tmp3;
+		int tmp13 = tmp0 - tmp3;
+		int tmp11 = tmp1 + tmp2;
+		int tmp12 = tmp1 - tmp2;
+		data[offset] = descale((tmp10 + tmp11) << evenScale, evenShift);
+		data[offset + (4 * stride)] = descale((tmp10 - tmp11) << evenScale, evenShift);
+		int z1 = (tmp12 + tmp13) * FIX_0_541196100;
+		data[offset + (2 * stride)] = descale(z1 + (tmp13 * FIX_0_765366865), shift);
+		data[offset + (6 * stride)] = descale(z1 - (tmp12 * FIX_1_847759065), shift);
+
+		//odd part
+		z1 = tmp4 + tmp7;
+		int z2 = tmp5 + tmp6;
+		int z3 = tmp4 + tmp6;
+		int z4 = tmp5 + tmp7;
+		int z5 = (z3 + z4) * FIX_1_175875602;
+		tmp4 *= FIX_0_298631336;
+		tmp5 *= FIX_2_053119869;
+		tmp6 *= FIX_3_072711026;
+		tmp7 *= FIX_1_501321110;
+		z1 *= -FIX_0_899976223;
+		z2 *= -FIX_2_562915447;
+		z3 = (z3 * -FIX_1_961570560) + z5;
+		z4 = (z4 * -FIX_0_390180644) + z5;
+		data[offset + (7 * stride)] = descale(tmp4 + z1 + z3, shift);
+		data[offset + (5 * stride)] = descale(tmp5 + z2 + z4, shift);
+		data[offset + (3 * stride)] = descale(tmp6 + z2 + z3, shift);
+		data[offset + stride] = descale(tmp7 + z1 + z4, shift);
+	}
+
+	/**
+	 * 8 point inverse DCT in place
+	 * @param data values
+	 * @param offset index of the first value
+	 * @param stride distance between values
+	 * @param shift bits to drop from the outputs
+	 */
+	private static void inverse1D(int[] data, int offset, int stride, int shift) {
+		//even part
+		int z2 = data[offset + (2 * stride)];
+		int z3 = data[offset + (6 * stride)];
+		int z1 = (z2 + z3) * FIX_0_541196100;
+		int tmp2 = z1 - (z3 * FIX_1_847759065);
+		int tmp3 = z1 + (z2 * FIX_0_765366865);
+		z2 = data[offset];
+		z3 = data[offset + (4 * stride)];
+		int tmp0 = (z2 + z3) << CONST_BITS;
+		int tmp1 = (z2 - z3) << CONST_BITS;
+		int tmp10 = tmp0 + tmp3;
+		int tmp13 = tmp0 - tmp3;
+		int tmp11 = tmp1 + tmp2;
+		int tmp12 = tmp1 - tmp2;
+
+		//odd part
+		tmp0 = data[offset + (7 * stride)];
+		tmp1 = data[offset + (5 * stride)];
+		tmp2 = data[offset + (3 * stride)];
+		tmp3 = data[offset + stride];
+		z1 = tmp0 + tmp3;
+		z2 = tmp1 + tmp2;
+		z3 = tmp0 + tmp2;
+		int z4 = tmp1 + tmp3;
+		int z5 = (z3 + z4) * FIX_1_175875602;
+		tmp0 *= FIX_0_298631336;
+		tmp1 *= FIX_2_053119869;
+		tmp2 *= FIX_3_072711026;
+		tmp3 *= FIX_1_501321110;
+		z1 *= -FIX_0_899976223;
+		z2 *= -FIX_2_562915447;
+		z3 = (z3 * -FIX_1_961570560) + z5;
+		z4 = (z4 * -FIX_0_390180644) + z5;
+		tmp0 += z1 + z3;
+		tmp1 += z2 + z4;
+		tmp2 += z2 + z3;
+		tmp3 += z1 + z4;
+
+		data[offset] = descale(tmp10 + tmp3, shift);
+		data[offset + (7 * stride)] = descale(tmp10 - tmp3, shift);
+		data[offset + stride] = descale(tmp11 + tmp2, shift);
+		data[offset + (6 * stride)] = descale(tmp11 - tmp2, shift);
+		data[offset + (2 * stride)] = descale(tmp12 + tmp1, shift);
+		data[offset + (5 * stride)] = descale(tmp12 - tmp1, shift);
+		data[offset + (3 * stride)] = descale(tmp13 + tmp0, shift);
+		data[offset + (4 * stride)] = descale(tmp13 - tmp0, shift);
+	}
+
+	/**
+	 * Divides by 2^shift, rounding to the nearest integer
+	 */
+	private static int descale(int value, int shift) {
+		return (shift == 0) ? value : (value + (1 << (shift - 1))) >> shift;
+	}
+
+}
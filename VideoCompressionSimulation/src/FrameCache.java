@@ -0,0 +1,136 @@
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Class that holds the finished VideoFrames of a CompressedVideo within a
+ * byte budget. When adding a frame goes over the budget, the least recently
+ * used frames are evicted, and an evicted frame is created again from the
+ * FrameStore the next time the VideoPlayer asks for it. Frames the FrameStore
+ * can no longer provide, such as frames from standard input that have been
+ * released, can not be created again, so when only they are left over budget
+ * the oldest of them are dropped for good and playback loops over the frames
+ * from getFirstFrameNum on. The budget is a hard cap either way, so a long
+ * stream does not run out of memory. Hit, miss, eviction and drop counts are
+ * kept so the budget can be sized, see getStats.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class FrameCache {
+
+	private final CompressedVideo video;
+	private final long byteBudget;
+
+	/**
+	 * Frames in least to most recently used order
+	 */
+	private final LinkedHashMap<Integer, VideoFrame> frames = new LinkedHashMap<Integer, VideoFrame>(16, 0.75f, true);
+	private long bytesUsed;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long drops;
+
+	/**
+	 * Lowest frame number that has not been dropped, see getFirstFrameNum
+	 */
+	private int firstFrameNum;
+
+	FrameCache(CompressedVideo video, long byteBudget) {
+		this.video = video;
+		this.byteBudget = byteBudget;
+	}
+
+	/**
+	 * Adds a finished frame, evicting other frames if over budget, or dropping the oldest frames if
+	 * the rest can not be created again
+	 * @param frame finished video frame
+	 */
+	synchronized void put(VideoFrame frame) {
+		VideoFrame oldFrame = frames.put(frame.frameNum, frame);
+		if (oldFrame != null) {
+			bytesUsed -= oldFrame.getSizeInBytes(video);
+		}
+		bytesUsed += frame.getSizeInBytes(video);
+
+		Iterator<Map.Entry<Integer, VideoFrame>> iterator = frames.entrySet().iterator();
+		while (bytesUsed > byteBudget && iterator.hasNext()) {
+			VideoFrame curFrame = iterator.next().getValue();
+			if (curFrame != frame && video.frameStore.hasFrame(curFrame.frameNum)) {
+				iterator.remove();
+				bytesUsed -= curFrame.getSizeInBytes(video);
+				evictions++;
+			}
+		}
+
+		while (bytesUsed > byteBudget && firstFrameNum < frame.frameNum && !video.frameStore.hasFrame(firstFrameNum)) {
+			if (drops == 0) {
+				System.out.println("Frame cache budget of " + (byteBudget >> 20) + " MB reached, dropping the oldest frames, " + 
+						"see -Dvcs.frameCacheMB");
+			}
+			VideoFrame droppedFrame = frames.remove(firstFrameNum);
+			if (droppedFrame != null) {
+				bytesUsed -= droppedFrame.getSizeInBytes(video);
+			}
+			firstFrameNum++;
+			drops++;
+		}
+	}
+
+	/**
+	 * Gets a finished frame, creating it again if it was evicted
+	 * @param frameNum frame number, must already have been added once
+	 * @return finished video frame, or null if it was dropped
+	 */
+	VideoFrame get(int frameNum) {
+		synchronized (this) {
+			if (frameNum < firstFrameNum) {
+				return null;
+			}
+			VideoFrame frame = frames.get(frameNum);
+			if (frame != null) {
+				hits++;
+				return frame;
+			}
+			misses++;
+		}
+		VideoFrame frame = VideoFrame.createFrame(video, frameNum);
+		put(frame);
+		return frame;
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	synchronized long getEvictions() {
+		return evictions;
+	}
+
+	synchronized long getDrops() {
+		return drops;
+	}
+
+	/**
+	 * Lowest frame number that can still be played, the frames before it were dropped to stay within
+	 * the budget, 0 unless the FrameStore can not create frames again
+	 */
+	synchronized int getFirstFrameNum() {
+		return firstFrameNum;
+	}
+
+	/**
+	 * Counters and memory use, for sizing the budget
+	 */
+	synchronized String getStats() {
+		return "Frame cache: " + frames.size() + " frames, " + (bytesUsed >> 20) + "/" + (byteBudget >> 20) + " MB, " +
+				hits + " hits, " + misses + " misses, " + evictions + " evictions, " + drops + " dropped";
+	}
+
+}
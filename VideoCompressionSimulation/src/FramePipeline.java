@@ -0,0 +1,322 @@
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Class that creates the VideoFrames of a CompressedVideo in a staged pipeline
+ * so that playback can start as soon as the first frame is done instead of
+ * after the last. Each stage runs on its own thread and hands frames to the
+ * next stage through a bounded queue, so a fast stage blocks instead of
+ * running ahead of a slow one. The stages are, in order: read the frame's
+ * r, g, and b bytes, compute the blurred Y channel, and analyze the frame
+ * (create MacroBlocks, assign them to a layer, and create DCTBlocks). The
+ * analysis of a frame only reads the input bytes of that frame and the one
+ * before, not the analysis of the one before, so the last stage hands whole
+ * frames to the video's workers, up to twice as many as there are threads at
+ * a time, and finished frames are put back in order before they are
+ * published. A MotionSearch that uses the previous frame's motion vectors
+ * needs the frames' MacroBlocks created in order, so for it they are created
+ * by the last stage itself, still split across the workers, before the rest of
+ * the frame is handed off. The result does not depend on the number of threads.
+ * Rendering is done by the VideoPlayer,
+ * which waits for each frame with getFrame. Finished frames are kept by the
+ * video's FrameCache, which may create a frame again later on if it had to be
+ * evicted to stay within its budget. The pipeline runs until the
+ * FrameStore runs out of input, so the number of frames does not have to be
+ * known up front.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class FramePipeline {
+
+	//number of frames that can wait between two stages before the earlier stage blocks
+	static final int QUEUE_SIZE = 4;
+
+	/**
+	 * Passed down the stages after the last frame
+	 */
+	private static final VideoFrame END_OF_INPUT = new VideoFrame(-1);
+
+	private final CompressedVideo video;
+
+	/**
+	 * Number of frames that have been through every stage, they are handed to the FrameCache in frame order
+	 */
+	private int numOfFramesLoaded;
+	private boolean done;
+
+	/**
+	 * First frame that could not be analyzed, the frames before it are still published and the ones
+	 * from it on are not, Integer.MAX_VALUE if every frame so far could be analyzed
+	 */
+	private int failedFrameNum = Integer.MAX_VALUE;
+
+	/**
+	 * Frames that have been analyzed but wait for an earlier frame before they are published, by frame number
+	 */
+	private final Map<Integer, VideoFrame> analyzedFrames = new HashMap<Integer, VideoFrame>();
+
+	/**
+	 * Permits for frames that are handed to the workers and not published yet
+	 */
+	private final int maxFramesInFlight;
+	private final Semaphore framesInFlight;
+
+	FramePipeline(CompressedVideo video) {
+		this.video = video;
+		maxFramesInFlight = getMaxFramesInFlight(video);
+		framesInFlight = new Semaphore(maxFramesInFlight);
+	}
+
+	/**
+	 * Largest number of frames handed to the workers and not published yet
+	 * @param video parent CompressedVideo
+	 */
+	static int getMaxFramesInFlight(CompressedVideo video) {
+		return Math.max(1, video.numThreads) * 2;
+	}
+
+	/**
+	 * Largest number of frames whose input the pipeline can hold at once, from the one being read to
+	 * the last one published, which is released once the frame after it is published. FrameStores
+	 * that only keep the frames still in use size their buffers with this, a smaller buffer holds
+	 * the read stage back and leaves the workers idle
+	 * @param video parent CompressedVideo
+	 */
+	static int getMaxFramesHeld(CompressedVideo video) {
+		return 1 + //being read
+				(2 * QUEUE_SIZE) + //waiting between the read, gray, and analysis stages
+				2 + //taken by the gray and analysis stage threads
+				getMaxFramesInFlight(video) + 
+				1; //last one published
+	}
+
+	/**
+	 * Starts one thread per stage, returns right away
+	 */
+	void start() {
+		if (video.numOfFrames != CompressedVideo.UNKNOWN_NUM_OF_FRAMES) {
+			System.out.println("Frames to load: " + video.numOfFrames);
+		}
+		System.out.println(VideoFrame.getMemoryReport(video));
+
+		BlockingQueue<VideoFrame> readQueue = new ArrayBlockingQueue<VideoFrame>(QUEUE_SIZE);
+		BlockingQueue<VideoFrame> grayQueue = new ArrayBlockingQueue<VideoFrame>(QUEUE_SIZE);
+
+		startReadStage(readQueue);
+		startStage("gray", readQueue, grayQueue,
+				frame -> video.frameStore.writeGrayFrame(frame.frameNum));
+		startAnalysisStage(grayQueue);
+	}
+
+	/**
+	 * Waits until a frame has been through every stage, then gets it from the FrameCache
+	 * @param frameNum frame number
+	 * @return finished video frame, or null if the input ended before this frame or the frame was dropped
+	 */
+	VideoFrame getFrame(int frameNum) throws InterruptedException {
+		synchronized (this) {
+			while (frameNum >= numOfFramesLoaded && !done) {
+				wait();
+			}
+			if (frameNum >= numOfFramesLoaded) {
+				return null;
+			}
+		}
+		return video.frameCache.get(frameNum);
+	}
+
+	/**
+	 * Number of frames that have been through every stage so far
+	 */
+	synchronized int getNumOfFramesLoaded() {
+		return numOfFramesLoaded;
+	}
+
+	/**
+	 * Called by the workers as each frame is analyzed, publishes the frames that are now next in order
+	 */
+	private synchronized void analyzed(VideoFrame frame) {
+		if (frame.frameNum > failedFrameNum) {
+			framesInFlight.release();
+			return;
+		}
+		analyzedFrames.put(frame.frameNum, frame);
+		VideoFrame nextFrame = analyzedFrames.remove(numOfFramesLoaded);
+		while (nextFrame != null) {
+			//the previous frame's DCTBlocks and this frame's motion search are done
+			if (nextFrame.frameNum > 0) {
+				video.frameStore.releaseFrame(nextFrame.frameNum - 1);
+			}
+			publish(nextFrame);
+			framesInFlight.release();
+			nextFrame = analyzedFrames.remove(numOfFramesLoaded);
+		}
+		if (numOfFramesLoaded == failedFrameNum) {
+			finish();
+		}
+	}
+
+	/**
+	 * Called when a frame could not be analyzed. The pipeline ends at that frame once the frames
+	 * before it are published, so the VideoPlayer loops over them instead of waiting for it forever,
+	 * and the permits of the frames after it are given back without publishing them
+	 * @param frame frame that could not be analyzed
+	 * @param e what went wrong
+	 */
+	private synchronized void analysisFailed(VideoFrame frame, RuntimeException e) {
+		System.err.println("Could not analyze frame " + (frame.frameNum + 1) + ": " + e);
+		e.printStackTrace();
+		if (frame.frameNum < failedFrameNum) {
+			failedFrameNum = frame.frameNum;
+			Iterator<Integer> frameNums = analyzedFrames.keySet().iterator();
+			while (frameNums.hasNext()) {
+				if (frameNums.next() > failedFrameNum) {
+					frameNums.remove();
+					framesInFlight.release();
+				}
+			}
+		}
+		framesInFlight.release();
+		if (numOfFramesLoaded == failedFrameNum) {
+			finish();
+		}
+	}
+
+	private synchronized boolean hasFailed() {
+		return failedFrameNum != Integer.MAX_VALUE;
+	}
+
+	private synchronized void publish(VideoFrame frame) {
+		video.frameCache.put(frame);
+		numOfFramesLoaded++;
+		if (video.numOfFrames != CompressedVideo.UNKNOWN_NUM_OF_FRAMES) {
+			System.out.println("Loaded frame " + (frame.frameNum + 1) + "/" + video.numOfFrames);
+		}
+		else {
+			System.out.println("Loaded frame " + (frame.frameNum + 1));
+		}
+		notifyAll();
+	}
+
+	private synchronized void finish() {
+		if (numOfFramesLoaded > 0) {
+			video.frameStore.releaseFrame(numOfFramesLoaded - 1);
+		}
+		done = true;
+		notifyAll();
+	}
+
+	/**
+	 * Starts the thread for the first stage, which reads frames until the input ends
+	 * @param out queue to put read frames on
+	 */
+	private void startReadStage(BlockingQueue<VideoFrame> out) {
+		startThread("read", () -> {
+			try {
+				for (int frameNum = 0; video.frameStore.readFrame(frameNum); frameNum++) {
+					out.put(new VideoFrame(frameNum));
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				out.put(END_OF_INPUT);
+			}
+		});
+	}
+
+	/**
+	 * Starts the thread for one of the middle stages
+	 * @param name name of the stage
+	 * @param in queue to take frames from
+	 * @param out queue to put finished frames on
+	 * @param stage work done on each frame
+	 */
+	private void startStage(String name, BlockingQueue<VideoFrame> in, BlockingQueue<VideoFrame> out, Stage stage) {
+		startThread(name, () -> {
+			VideoFrame frame = in.take();
+			try {
+				while (frame != END_OF_INPUT) {
+					stage.process(frame);
+					out.put(frame);
+					frame = in.take();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			} finally {
+				out.put(END_OF_INPUT);
+			}
+		});
+	}
+
+	/**
+	 * Starts the thread for the last stage, which hands each frame to the workers to be analyzed
+	 * once there is room, and finishes once every frame is published or a frame could not be analyzed
+	 * @param in queue to take frames from
+	 */
+	private void startAnalysisStage(BlockingQueue<VideoFrame> in) {
+		startThread("analysis", () -> {
+			try {
+				VideoFrame frame = in.take();
+				while (frame != END_OF_INPUT && !hasFailed()) {
+					final VideoFrame nextFrame = frame;
+					framesInFlight.acquire();
+					if (video.motionSearch.usesPreviousMotion()) {
+						try {
+							nextFrame.macroBlocks = MacroBlock.createMacroBlocksForFrame(video, nextFrame.frameNum);
+						} catch (RuntimeException e) {
+							analysisFailed(nextFrame, e);
+							break;
+						}
+					}
+					video.workers.execute(() -> {
+						try {
+							nextFrame.analyze(video);
+						} catch (RuntimeException e) {
+							analysisFailed(nextFrame, e);
+							return;
+						}
+						analyzed(nextFrame);
+					});
+					frame = in.take();
+				}
+				framesInFlight.acquire(maxFramesInFlight);
+			} finally {
+				finish();
+			}
+		});
+	}
+
+	private void startThread(String name, Task task) {
+		Thread thread = new Thread(() -> {
+			try {
+				task.run();
+			} catch (InterruptedException e) {
+				System.err.println("Caught InterruptedException: " +  e.getMessage());
+			}
+		}, "FramePipeline-" + name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Work done by one stage on one frame
+	 */
+	private interface Stage {
+		void process(VideoFrame frame) throws IOException;
+	}
+
+	/**
+	 * Body of a stage thread
+	 */
+	private interface Task {
+		void run() throws InterruptedException;
+	}
+
+}
@@ -0,0 +1,82 @@
+import java.io.IOException;
+
+
+/**
+ * Interface for the storage behind a CompressedVideo's pre-processed video.
+ * A FrameStore hands out single bytes of the padded RGBY (Y=Gray) frames that
+ * the MacroBlock and DCTBlock classes read from. Rows and columns passed in
+ * are always in padded coordinates. Frames are filled in by the FramePipeline
+ * class, which calls readFrame and then writeGrayFrame once per frame, in
+ * frame order, and calls releaseFrame once a frame is no longer needed.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+interface FrameStore {
+
+	/**
+	 * Gets one byte of data from the pre-processed video
+	 * @param frameNum frame number
+	 * @param channel color channel (Y=Gray)
+	 * @param row padded row
+	 * @param column padded column
+	 * @return byte at that location
+	 */
+	byte getOneByte(int frameNum, CompressedVideo.Channel channel, int row, int column);
+
+	/**
+	 * Gets a run of pixels from one row of the pre-processed video, packed like a TYPE_INT_RGB image.
+	 * Same as getOneByte for the r, g, and b channels of each pixel, without a call per byte
+	 * @param frameNum frame number
+	 * @param row row, inside the frame and not the padding
+	 * @param column first column, the run must be inside the frame and not the padding
+	 * @param rgb destination for the pixels
+	 * @param offset index of the first pixel in rgb
+	 * @param length number of pixels
+	 */
+	void getRGB(int frameNum, int row, int column, int[] rgb, int offset, int length);
+
+	/**
+	 * Gets the array that holds the Y channel of a frame, so a block of it can be read without
+	 * a call per byte. The byte at a padded row and column is at
+	 * getGrayOffset() + (row * frameWidthPadded) + column, the same as getOneByte gives
+	 * @param frameNum frame number, its Y channel must have been written
+	 * @return bytes of the frame's Y channel
+	 */
+	byte[] getGrayFrame(int frameNum);
+
+	/**
+	 * Index of the first Y byte in the arrays from getGrayFrame
+	 */
+	int getGrayOffset();
+
+	/**
+	 * Makes the r, g, and b channels of the next frame available
+	 * @param frameNum frame number
+	 * @return false if the input ended before this frame
+	 */
+	boolean readFrame(int frameNum) throws IOException;
+
+	/**
+	 * Computes the blurred Y channel of a frame that has already been read
+	 * @param frameNum frame number
+	 */
+	void writeGrayFrame(int frameNum);
+
+	/**
+	 * Tells the store that the pipeline is done with a frame, stores that keep every
+	 * frame can ignore this
+	 * @param frameNum frame number
+	 */
+	void releaseFrame(int frameNum);
+
+	/**
+	 * Whether a frame that has been through the FramePipeline can still be read at any later
+	 * time, even after it has been released. The FrameCache class only evicts frames it can
+	 * create again
+	 * @param frameNum frame number
+	 * @return true if the frame's bytes stay available
+	 */
+	boolean hasFrame(int frameNum);
+
+}
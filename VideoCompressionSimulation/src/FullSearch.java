@@ -0,0 +1,25 @@
+/**
+ * MotionSearch that tries every candidate in the search range, so it always
+ * finds the least SAD. The zero vector is tried first so it wins ties, then
+ * the rest row by row. Each SAD is a tight loop over rows of the block with
+ * no calls in it, and most candidates stop after a few rows once a good
+ * match has been found, see SearchWindow.getSAD.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class FullSearch implements MotionSearch {
+
+	@Override
+	public void search(SearchWindow window) {
+		int homeRow = window.getTopLeftRow();
+		int homeCol = window.getTopLeftCol();
+		window.tryCandidate(homeRow, homeCol);
+		for (int row = homeRow - window.searchRange; row <= homeRow + window.searchRange; row++) {
+			for (int col = homeCol - window.searchRange; col <= homeCol + window.searchRange; col++) {
+				window.tryCandidate(row, col);
+			}
+		}
+	}
+
+}
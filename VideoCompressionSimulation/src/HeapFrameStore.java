@@ -0,0 +1,182 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * FrameStore that keeps the whole pre-processed video in the heap, read one
+ * frame at a time by RGBFileReader. Each frame is its own byte array holding the padded
+ * r, g, b and y channels in that order, so only the offset within a frame has
+ * to fit in an int and the number of frames is not limited by the largest
+ * possible array. With more than one ingest thread, frames are read in
+ * ranges of FRAMES_PER_RANGE by the CompressedVideo's worker pool, each range
+ * read with positional reads and padded, converted to Y and blurred on the
+ * worker that read it, and readFrame only waits for the frame to be done.
+ * Ranges are handed to the workers as readFrame gets to them, at most one
+ * range per thread ahead of the frame being read, so ingest does not hold the
+ * workers that analyze the first frames, see FramePipeline.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class HeapFrameStore implements FrameStore {
+
+	//number of frames read by one ingest task
+	private static final int FRAMES_PER_RANGE = 8;
+
+	private final CompressedVideo video;
+	private final RGBFileReader reader;
+	private final File file;
+	private InputStream inputStream;
+	private final boolean parallelIngest;
+	private final int ingestAheadFrames; //frames past the one being read that are handed to ingest tasks
+	private int numOfFramesSubmitted; //frames handed to ingest tasks so far, in order
+	private IOException ingestException;
+
+	/**
+	 * Byte arrays that are read from the input file, one per frame, with one frame's worth of r (red), b (blue), 
+	 * and g(green) bytes. Y (grayscale channel) bytes are computed during reading of input file
+	 */
+	private final byte[][] rgbyInput;
+
+	HeapFrameStore(CompressedVideo video, File file) {
+		this.video = video;
+		this.file = file;
+		reader = new RGBFileReader(video);
+		rgbyInput = new byte[video.numOfFrames][];
+		parallelIngest = video.numThreads > 1;
+		ingestAheadFrames = Math.max(1, video.numThreads) * FRAMES_PER_RANGE;
+	}
+
+	@Override
+	public byte getOneByte(int frameNum, CompressedVideo.Channel channel, int row, int column) {
+		return rgbyInput[frameNum][(channel.getColorNum() * video.frameSizePadded) +
+		                           (row * video.frameWidthPadded) +
+		                           column];
+	}
+
+	@Override
+	public byte[] getGrayFrame(int frameNum) {
+		return rgbyInput[frameNum];
+	}
+
+	@Override
+	public int getGrayOffset() {
+		return CompressedVideo.Channel.GRAY.getColorNum() * video.frameSizePadded;
+	}
+
+	@Override
+	public void getRGB(int frameNum, int row, int column, int[] rgb, int offset, int length) {
+		byte[] frameBytes = rgbyInput[frameNum];
+		int red = (row * video.frameWidthPadded) + column;
+		int green = red + video.frameSizePadded;
+		int blue = green + video.frameSizePadded;
+		for (int i = 0; i < length; i++) {
+			rgb[offset + i] = ((frameBytes[red + i] & 0xff) << 16) | ((frameBytes[green + i] & 0xff) << 8) | (frameBytes[blue + i] & 0xff);
+		}
+	}
+
+	@Override
+	public boolean readFrame(int frameNum) throws IOException {
+		if (frameNum >= video.numOfFrames) {
+			return false;
+		}
+		if (parallelIngest) {
+			waitForFrame(frameNum);
+			return true;
+		}
+		if (inputStream == null) {
+			System.out.println("Loading file...");
+			inputStream = new FileInputStream(file);
+		}
+		try {
+			rgbyInput[frameNum] = reader.readOneFrame(inputStream);
+		} finally {
+			if (frameNum == video.numOfFrames - 1) {
+				inputStream.close();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Y channel is already written by the ingest task when reading in parallel
+	 */
+	@Override
+	public void writeGrayFrame(int frameNum) {
+		if (!parallelIngest) {
+			reader.writeGrayFrame(rgbyInput[frameNum]);
+		}
+	}
+
+	@Override
+	public void releaseFrame(int frameNum) {
+	}
+
+	@Override
+	public boolean hasFrame(int frameNum) {
+		return frameNum < video.numOfFrames;
+	}
+
+	/**
+	 * Starts the ingest tasks up to ingestAheadFrames past the frame, then waits until the frame's
+	 * task is done with it
+	 */
+	private synchronized void waitForFrame(int frameNum) throws IOException {
+		if (numOfFramesSubmitted == 0) {
+			System.out.println("Loading file with " + video.numThreads + " threads...");
+		}
+		int aheadEndFrame = Math.min(frameNum + ingestAheadFrames, video.numOfFrames);
+		while (numOfFramesSubmitted < aheadEndFrame) {
+			final int startFrame = numOfFramesSubmitted;
+			final int endFrame = Math.min(startFrame + FRAMES_PER_RANGE, video.numOfFrames);
+			video.workers.execute(() -> ingestFrameRange(startFrame, endFrame));
+			numOfFramesSubmitted = endFrame;
+		}
+		try {
+			while (rgbyInput[frameNum] == null && ingestException == null) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for frame " + frameNum, e);
+		}
+		if (ingestException != null) {
+			throw ingestException;
+		}
+	}
+
+	/**
+	 * Ingest task, reads a range of frames and computes their Y channel
+	 * @param startFrame first frame
+	 * @param endFrame one past the last frame
+	 */
+	private void ingestFrameRange(int startFrame, int endFrame) {
+		long frameSize = (long) video.frameHeight * video.frameWidth * CompressedVideo.NUM_CHANNELS_RGB;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			for (int frameNum = startFrame; frameNum < endFrame; frameNum++) {
+				byte[] bytes = reader.readOneFrame(channel, frameNum * frameSize);
+				reader.writeGrayFrame(bytes);
+				setFrame(frameNum, bytes);
+			}
+		} catch (IOException e) {
+			setIngestException(e);
+		}
+	}
+
+	private synchronized void setFrame(int frameNum, byte[] bytes) {
+		rgbyInput[frameNum] = bytes;
+		notifyAll();
+	}
+
+	private synchronized void setIngestException(IOException e) {
+		if (ingestException == null) {
+			ingestException = e;
+		}
+		notifyAll();
+	}
+
+}
@@ -0,0 +1,35 @@
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counts how the IDCT of each channel of each rendered DCTBlock was done,
+ * see DCTBlock.dctToIDCT. After quantization most background blocks have
+ * only a DC coefficient, which is a constant fill, or only a few low
+ * frequency coefficients, which is a reduced IDCT. Blocks in the gaze area,
+ * with a quantization value of 1, skip both transforms and are copied from
+ * the source, which is counted per block. Reported with getStats.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class IdctStats {
+
+	final LongAdder dcOnly = new LongAdder();
+	final LongAdder sparse = new LongAdder();
+	final LongAdder full = new LongAdder();
+	final LongAdder sourceCopies = new LongAdder();
+
+	/**
+	 * Number of channel blocks that took each path
+	 */
+	String getStats() {
+		long numOfDCOnly = dcOnly.sum();
+		long numOfSparse = sparse.sum();
+		long numOfFull = full.sum();
+		long total = Math.max(1, numOfDCOnly + numOfSparse + numOfFull);
+		return "IDCT paths: " + numOfDCOnly + " DC only (" + ((100 * numOfDCOnly) / total) + "%), " +
+				numOfSparse + " sparse (" + ((100 * numOfSparse) / total) + "%), " +
+				numOfFull + " full (" + ((100 * numOfFull) / total) + "%), " + sourceCopies.sum() + " blocks copied from source";
+	}
+
+}
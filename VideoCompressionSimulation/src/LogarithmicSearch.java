@@ -0,0 +1,51 @@
+/**
+ * MotionSearch that looks at the 9 positions +/- step around the best
+ * candidate, starting with a step of searchParamK / 2 and halving it down
+ * to 1. Cheap, but can settle on a local minimum. The center position is
+ * looked at again at each step and wins ties, the other positions have to
+ * be strictly better than the ones before them.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class LogarithmicSearch implements MotionSearch {
+
+	@Override
+	public void search(SearchWindow window) {
+		int searchParamK = window.searchParamK;
+		int curRunHomeTopLeftRow = window.getTopLeftRow();
+		int curRunHomeTopLeftCol = window.getTopLeftCol();
+		int nextRunHomeTopLeftRow = curRunHomeTopLeftRow;
+		int nextRunHomeTopLeftCol = curRunHomeTopLeftCol;
+		int tempError = 0;
+		while (searchParamK > 1) {
+			searchParamK /= 2;
+			tempError = Integer.MAX_VALUE;
+			int curError = 0;
+			//search 9 positions +/- searchParamK (logarithmically shrinking)
+			for (int i = -1; i <= 1; i++) {
+				for (int j = -1; j <= 1; j++) {
+					int topLeftRowTarget = curRunHomeTopLeftRow + (i * searchParamK);
+					int topLeftColTarget = curRunHomeTopLeftCol + (j * searchParamK);
+					if (window.isInbound(topLeftRowTarget, topLeftColTarget)) {
+						curError = window.getSAD(topLeftRowTarget, topLeftColTarget, tempError);
+						if (i == 0 && j == 0 && curError <= tempError) {
+							tempError = curError;
+							nextRunHomeTopLeftRow = topLeftRowTarget;
+							nextRunHomeTopLeftCol = topLeftColTarget;
+						}
+						else if (curError < tempError) {
+							tempError = curError;
+							nextRunHomeTopLeftRow = topLeftRowTarget;
+							nextRunHomeTopLeftCol = topLeftColTarget;
+						}
+					}
+				}
+			}
+			curRunHomeTopLeftRow = nextRunHomeTopLeftRow;
+			curRunHomeTopLeftCol = nextRunHomeTopLeftCol;
+		}
+		window.setBest(curRunHomeTopLeftRow, curRunHomeTopLeftCol, tempError);
+	}
+
+}
@@ -1,3 +1,6 @@
+import java.util.concurrent.ForkJoinTask;
+
+
 
 /**
  * Class that represents one macro block for a CompressedVideo class. 
@@ -14,14 +17,25 @@
  */
 class MacroBlock {
 	
+	//rows of macro blocks searched as one unit of work, fixed so searches that start from the
+	//blocks before them see the same blocks for any number of threads, see SearchWindow.getNeighbor
+	static final int ROWS_PER_BAND = 4;
+	
 	short xMotionVector;
 	short yMotionVector;
 	int errorSAD; // Error from SAD (Sum of Absolute Difference) during motion vector calculations
 	boolean foreground;
 
 	//TODO come back and make 1st frame motion blocks = 2nd frame
-	MacroBlock(CompressedVideo parentVid, int frameNum, int yIndex, int xIndex) {
-		//Calculates motion vectors based on prior frame using logarithmic search (except for first frame)
+	/**
+	 * @param parentVid parent CompressedVideo
+	 * @param frameNum frame number
+	 * @param yIndex macro block row
+	 * @param xIndex macro block column
+	 * @param window search window for the frame, one per thread, null for the first frame
+	 */
+	MacroBlock(CompressedVideo parentVid, int frameNum, int yIndex, int xIndex, SearchWindow window) {
+		//Calculates motion vectors based on prior frame using the video's MotionSearch (except for first frame)
 		int topLeftRow = yIndex * parentVid.macroBlockSize; 
 		int topLeftCol = xIndex * parentVid.macroBlockSize;
 		
@@ -30,42 +44,12 @@ class MacroBlock {
 			yMotionVector = 0;
 			return;
 		}
-		int searchParamK = parentVid.searchParamK;
-		int curRunHomeTopLeftRow = topLeftRow;
-		int curRunHomeTopLeftCol = topLeftCol;
-		int nextRunHomeTopLeftRow = topLeftRow;
-		int nextRunHomeTopLeftCol = topLeftCol;
-		int tempError = 0;
-		while(searchParamK > 1) {
-			searchParamK /= 2;
-			tempError = Integer.MAX_VALUE;
-			int curError = 0;
-			//search 9 positions +/- searchParamK (logarithmically shrinking)
-			for (int i = -1; i <= 1; i++) {
-				for (int j = -1; j <= 1; j++) {
-					int topLeftRowTarget = curRunHomeTopLeftRow + (i * searchParamK); 
-					int topLeftColTarget = curRunHomeTopLeftCol + (j * searchParamK);
-					if (blockInbound(topLeftRowTarget, topLeftColTarget, parentVid)) {
-						curError = calcMacroBlockError(parentVid,frameNum,topLeftRow,topLeftCol,topLeftRowTarget,topLeftColTarget);
-						if (i == 0 && j == 0 && curError <= tempError) {
-							tempError = curError;
-							nextRunHomeTopLeftRow = topLeftRowTarget;
-							nextRunHomeTopLeftCol = topLeftColTarget;
-						}
-						else if (curError < tempError) {
-							tempError = curError;
-							nextRunHomeTopLeftRow = topLeftRowTarget;
-							nextRunHomeTopLeftCol = topLeftColTarget;
-						}
-					}
-				}
-			}
-			curRunHomeTopLeftRow = nextRunHomeTopLeftRow;
-			curRunHomeTopLeftCol = nextRunHomeTopLeftCol;
-		}
-		xMotionVector = (short) (curRunHomeTopLeftCol - topLeftCol);
-		yMotionVector = (short) (curRunHomeTopLeftRow - topLeftRow);
-		errorSAD = tempError;
+		window.setBlock(yIndex, xIndex);
+		parentVid.motionSearch.search(window);
+		xMotionVector = (short) (window.getBestCol() - topLeftCol);
+		yMotionVector = (short) (window.getBestRow() - topLeftRow);
+		errorSAD = window.getBestError();
+		parentVid.motionStats.add(window.getNumOfEvaluations(), errorSAD);
 	}
 	
 	short getxMotionVector() {
@@ -112,21 +96,64 @@ class MacroBlock {
 			return result;
 		}
 
+	/**
+	 * Creates the MacroBlocks of a frame. The rows of macro blocks are split into bands of ROWS_PER_BAND
+	 * rows, and with more than one thread the bands are searched at the same time on the video's workers,
+	 * with this thread taking the first band. Each MacroBlock only reads the Y channel of this frame and
+	 * the one before, the motion vectors of the frame before, and blocks above and to the left of it in
+	 * its own band, so the result is the same for any number of threads
+	 * @param parentVid parent CompressedVideo
+	 * @param frameNum frame number
+	 * @return MacroBlocks, indexed by xIndex then yIndex
+	 */
 	static MacroBlock[][] createMacroBlocksForFrame(CompressedVideo parentVid, int frameNum) {
+		int numOfRows = parentVid.frameHeightPadded / parentVid.macroBlockSize;
 		MacroBlock[][] oneFrameOfMacroBlocks = 
 				new MacroBlock[parentVid.frameWidthPadded / (parentVid.macroBlockSize)]
-				[parentVid.frameHeightPadded / (parentVid.macroBlockSize)];
+				[numOfRows];
 		
-		for (int xIndex = 0; xIndex < parentVid.frameWidthPadded/parentVid.macroBlockSize; xIndex++) {
-			for (int yIndex = 0; yIndex < parentVid.frameHeightPadded/parentVid.macroBlockSize; yIndex++) {
-				oneFrameOfMacroBlocks[xIndex][yIndex] = new MacroBlock(parentVid, frameNum, yIndex, xIndex);
+		int numOfBands = (numOfRows + ROWS_PER_BAND - 1) / ROWS_PER_BAND;
+		if (parentVid.numThreads <= 1) {
+			createMacroBlocksForRows(parentVid, frameNum, oneFrameOfMacroBlocks, 0, numOfRows);
+		}
+		else {
+			ForkJoinTask<?>[] bands = new ForkJoinTask<?>[Math.max(0, numOfBands - 1)];
+			for (int band = 1; band < numOfBands; band++) {
+				final int firstRow = band * ROWS_PER_BAND;
+				final int endRow = Math.min(firstRow + ROWS_PER_BAND, numOfRows);
+				bands[band - 1] = parentVid.workers.submit(
+						() -> createMacroBlocksForRows(parentVid, frameNum, oneFrameOfMacroBlocks, firstRow, endRow));
+			}
+			createMacroBlocksForRows(parentVid, frameNum, oneFrameOfMacroBlocks, 0, Math.min(ROWS_PER_BAND, numOfRows));
+			for (ForkJoinTask<?> band : bands) {
+				band.join();
 			}
 		}
-		
+		if (parentVid.motionSearch.usesPreviousMotion()) {
+			parentVid.motionHistory.put(frameNum, oneFrameOfMacroBlocks);
+		}
 	
 		return oneFrameOfMacroBlocks;
 	}
 	
+	/**
+	 * Creates the MacroBlocks of whole bands of rows, one row after the other
+	 * @param parentVid parent CompressedVideo
+	 * @param frameNum frame number
+	 * @param oneFrameOfMacroBlocks destination, indexed by xIndex then yIndex
+	 * @param firstRow first yIndex, the first row of a band
+	 * @param endRow one past the last yIndex
+	 */
+	private static void createMacroBlocksForRows(CompressedVideo parentVid, int frameNum, 
+			MacroBlock[][] oneFrameOfMacroBlocks, int firstRow, int endRow) {
+		SearchWindow window = (frameNum > 0) ? new SearchWindow(parentVid, frameNum, oneFrameOfMacroBlocks) : null;
+		for (int yIndex = firstRow; yIndex < endRow; yIndex++) {
+			for (int xIndex = 0; xIndex < parentVid.frameWidthPadded/parentVid.macroBlockSize; xIndex++) {
+				oneFrameOfMacroBlocks[xIndex][yIndex] = new MacroBlock(parentVid, frameNum, yIndex, xIndex, window);
+			}
+		}
+	}
+	
 	static int getMacroBlockIndexX(CompressedVideo parentVideo, int x) {
 		return x / parentVideo.macroBlockSize;
 	}
@@ -147,32 +174,4 @@ class MacroBlock {
 		//else return 1
 		return 1;
 	}
-
-	private boolean blockInbound(int topLeftRow, int topLeftCol, CompressedVideo parentVid) {
-		if (topLeftRow < 0 || topLeftCol < 0) return false;
-		if (topLeftRow + parentVid.macroBlockSize > parentVid.frameHeightPadded || 
-				topLeftCol + parentVid.macroBlockSize > parentVid.frameWidthPadded) return false;
-		return true;
-	}
-
-	/**
-	 * Calculates potential macroblock motion vector error based on sum of absolute difference between pixels 
-	 */
-	private int calcMacroBlockError(CompressedVideo parentVid,
-			int frameNum, 
-			int topLeftRow, 
-			int topLeftCol, 
-			int topLeftRowTarget, 
-			int topLeftColTarget) {
-		
-		int error = 0;
-		for (int i = 0; i < parentVid.macroBlockSize; i++) {
-			for (int j = 0; j < parentVid.macroBlockSize; j++) {
-				error += Math.abs(parentVid.getOneByte(frameNum, CompressedVideo.Channel.GRAY, topLeftRow + i, topLeftCol + j) -
-						parentVid.getOneByte(frameNum - 1, CompressedVideo.Channel.GRAY, topLeftRowTarget + i, topLeftColTarget + j));
-			}
-		}
-		
-		return error;
-	}
 }
@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * FrameStore that reads the r, g, and b channels straight out of a memory
+ * mapped .rgb file instead of copying the whole file into the heap. The file
+ * is mapped in windows of whole frames so that clips of any length can be
+ * mapped, and the operating system's page cache is shared between runs.
+ * Padding is emulated by clamping the row and column to the last real row and
+ * column. The blurred Y (grayscale) channel is computed the first time a frame
+ * is asked for and kept in a small cache with a slot for every frame the
+ * FramePipeline can hold, since motion search only looks at the current and
+ * previous frame and the pipeline only works on that many frames at a time.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class MappedFrameStore implements FrameStore {
+
+	//largest number of bytes mapped by one window, must be less than Integer.MAX_VALUE
+	private static final long MAX_WINDOW_BYTES = 1L << 30;
+
+	private final CompressedVideo video;
+	private final RGBFileReader reader;
+	private final int channelSize; //unpadded size of one channel of one frame
+	private final int frameSize; //unpadded size of the r, g, and b channels of one frame
+	private final int framesPerWindow;
+	private final MappedByteBuffer[] windows;
+
+	/**
+	 * Y channel cache, slot is frame number modulo its length, see FramePipeline.getMaxFramesHeld
+	 */
+	private final GrayFrame[] grayFrames;
+
+	MappedFrameStore(CompressedVideo video, File file) {
+		this.video = video;
+		reader = new RGBFileReader(video);
+		channelSize = video.frameHeight * video.frameWidth;
+		frameSize = channelSize * CompressedVideo.NUM_CHANNELS_RGB;
+		framesPerWindow = (int) Math.max(1, MAX_WINDOW_BYTES / frameSize);
+		grayFrames = new GrayFrame[FramePipeline.getMaxFramesHeld(video)];
+		windows = new MappedByteBuffer[(video.numOfFrames + framesPerWindow - 1) / framesPerWindow];
+
+		System.out.println("Mapping file...");
+
+		try (RandomAccessFile inputFile = new RandomAccessFile(file, "r");
+				FileChannel channel = inputFile.getChannel()) {
+			for (int i = 0; i < windows.length; i++) {
+				long position = (long) i * framesPerWindow * frameSize;
+				int numFrames = Math.min(framesPerWindow, video.numOfFrames - (i * framesPerWindow));
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, (long) numFrames * frameSize);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Could not map " + file, e);
+		}
+	}
+
+	@Override
+	public byte getOneByte(int frameNum, CompressedVideo.Channel channel, int row, int column) {
+		if (channel == CompressedVideo.Channel.GRAY) {
+			return getGrayFrame(frameNum)[(row * video.frameWidthPadded) + column];
+		}
+		int clampedRow = (row < video.frameHeight) ? row : video.frameHeight - 1;
+		int clampedColumn = (column < video.frameWidth) ? column : video.frameWidth - 1;
+		return windows[frameNum / framesPerWindow].get(((frameNum % framesPerWindow) * frameSize) +
+				(channel.getColorNum() * channelSize) +
+				(clampedRow * video.frameWidth) +
+				clampedColumn);
+	}
+
+	@Override
+	public void getRGB(int frameNum, int row, int column, int[] rgb, int offset, int length) {
+		MappedByteBuffer window = windows[frameNum / framesPerWindow];
+		int red = ((frameNum % framesPerWindow) * frameSize) + (row * video.frameWidth) + column;
+		int green = red + channelSize;
+		int blue = green + channelSize;
+		for (int i = 0; i < length; i++) {
+			rgb[offset + i] = ((window.get(red + i) & 0xff) << 16) | ((window.get(green + i) & 0xff) << 8) | (window.get(blue + i) & 0xff);
+		}
+	}
+
+	/**
+	 * Nothing to read, the frame is paged in from the mapping as it is used
+	 */
+	@Override
+	public boolean readFrame(int frameNum) {
+		return frameNum < video.numOfFrames;
+	}
+
+	@Override
+	public void writeGrayFrame(int frameNum) {
+		getGrayFrame(frameNum);
+	}
+
+	@Override
+	public void releaseFrame(int frameNum) {
+	}
+
+	@Override
+	public boolean hasFrame(int frameNum) {
+		return frameNum < video.numOfFrames;
+	}
+
+	@Override
+	public int getGrayOffset() {
+		return 0;
+	}
+
+	@Override
+	public byte[] getGrayFrame(int frameNum) {
+		GrayFrame grayFrame = grayFrames[frameNum % grayFrames.length];
+		if (grayFrame != null && grayFrame.frameNum == frameNum) {
+			return grayFrame.bytes;
+		}
+		return loadGrayFrame(frameNum);
+	}
+
+	private synchronized byte[] loadGrayFrame(int frameNum) {
+		GrayFrame grayFrame = grayFrames[frameNum % grayFrames.length];
+		if (grayFrame == null || grayFrame.frameNum != frameNum) {
+			byte[] bytes = reader.getGrayFrame(windows[frameNum / framesPerWindow], (frameNum % framesPerWindow) * frameSize);
+			grayFrame = new GrayFrame(frameNum, bytes);
+			grayFrames[frameNum % grayFrames.length] = grayFrame;
+		}
+		return grayFrame.bytes;
+	}
+
+	/**
+	 * Immutable entry of the Y channel cache
+	 */
+	private static class GrayFrame {
+		final int frameNum;
+		final byte[] bytes;
+
+		GrayFrame(int frameNum, byte[] bytes) {
+			this.frameNum = frameNum;
+			this.bytes = bytes;
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+import java.util.ArrayList;
+
+
+/**
+ * Class that keeps the motion vectors of each frame after its MacroBlocks are
+ * created, for searches that start from the vector of the same block in the
+ * previous frame, see MotionSearch.usesPreviousMotion. Only the vectors are
+ * kept, 4 bytes per macro block, so they stay available when the FrameCache
+ * evicts the frame and the frame after it has to be created again. Input
+ * that can not be read again, such as standard input, never creates a frame
+ * again, so for it only the last two frames are kept, in a ring.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class MotionHistory {
+
+	private static final int RING_SIZE = 2;
+
+	/**
+	 * Vectors by frame number when the input can be read again, see getIndex for the layout
+	 */
+	private final ArrayList<short[]> frames;
+
+	/**
+	 * Vectors of the last RING_SIZE frames when it can not, slot is frame number modulo RING_SIZE
+	 */
+	private final short[][] ring;
+	private final int[] ringFrameNums;
+
+	/**
+	 * @param inputCanBeReadAgain whether frames can be created again after they are evicted, false for standard input
+	 */
+	MotionHistory(boolean inputCanBeReadAgain) {
+		if (inputCanBeReadAgain) {
+			frames = new ArrayList<short[]>();
+			ring = null;
+			ringFrameNums = null;
+		}
+		else {
+			frames = null;
+			ring = new short[RING_SIZE][];
+			ringFrameNums = new int[RING_SIZE];
+		}
+	}
+
+	/**
+	 * Index of a block's column part of the vector, the row part follows it
+	 * @param numOfColumns macro blocks per row
+	 * @param xIndex macro block column
+	 * @param yIndex macro block row
+	 */
+	static int getIndex(int numOfColumns, int xIndex, int yIndex) {
+		return ((yIndex * numOfColumns) + xIndex) * 2;
+	}
+
+	/**
+	 * Keeps the vectors of a frame
+	 * @param frameNum frame number
+	 * @param macroBlocks MacroBlocks of the frame, indexed by xIndex then yIndex
+	 */
+	synchronized void put(int frameNum, MacroBlock[][] macroBlocks) {
+		int numOfColumns = macroBlocks.length;
+		short[] vectors = new short[numOfColumns * macroBlocks[0].length * 2];
+		for (int xIndex = 0; xIndex < numOfColumns; xIndex++) {
+			for (int yIndex = 0; yIndex < macroBlocks[xIndex].length; yIndex++) {
+				int index = getIndex(numOfColumns, xIndex, yIndex);
+				vectors[index] = macroBlocks[xIndex][yIndex].xMotionVector;
+				vectors[index + 1] = macroBlocks[xIndex][yIndex].yMotionVector;
+			}
+		}
+		if (frames == null) {
+			ring[frameNum % RING_SIZE] = vectors;
+			ringFrameNums[frameNum % RING_SIZE] = frameNum;
+			return;
+		}
+		while (frames.size() <= frameNum) {
+			frames.add(null);
+		}
+		frames.set(frameNum, vectors);
+	}
+
+	/**
+	 * Gets the vectors of a frame
+	 * @param frameNum frame number, its MacroBlocks must have been created
+	 * @return vectors, see getIndex for the layout
+	 */
+	synchronized short[] get(int frameNum) {
+		short[] vectors;
+		if (frames == null) {
+			vectors = (ringFrameNums[frameNum % RING_SIZE] == frameNum) ? ring[frameNum % RING_SIZE] : null;
+		}
+		else {
+			vectors = (frameNum < frames.size()) ? frames.get(frameNum) : null;
+		}
+		if (vectors == null) {
+			throw new IllegalStateException("No motion vectors for frame " + frameNum);
+		}
+		return vectors;
+	}
+
+}
@@ -0,0 +1,66 @@
+/**
+ * Interface for the search that finds the motion vector of a MacroBlock, the
+ * position in the previous frame with the least SAD (Sum of Absolute
+ * Difference) against the block's Y values. Searches only look at
+ * candidates through a SearchWindow, which holds the block, computes SADs,
+ * and keeps the best candidate. Searches do not keep per block state and
+ * may be called from several threads at once, and they try candidates in a
+ * fixed order, so the result does not depend on threads. The search is
+ * chosen at startup with Kind, see VideoCompressionSimulation class, and the
+ * MotionStats class reports the SAD evaluations per block and mean SAD of
+ * the chosen search.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+interface MotionSearch {
+
+	/**
+	 * Finds the best candidate for the window's block, leaves it as the window's best candidate
+	 * @param window window set to the block, see SearchWindow.setBlock
+	 */
+	void search(SearchWindow window);
+
+	/**
+	 * Whether the search uses the motion vectors of the previous frame, see SearchWindow.getPreviousXMotion.
+	 * The MacroBlocks of such a search are created in frame order, see FramePipeline
+	 * @return true if the previous frame's vectors have to be kept in the video's MotionHistory
+	 */
+	default boolean usesPreviousMotion() {
+		return false;
+	}
+
+	/**
+	 * Available searches
+	 */
+	enum Kind {
+		LOGARITHMIC, //9 points at steps of searchParamK / 2, / 4, ... down to 1, up to 36 SADs per block for searchParamK 16
+		FULL, //every candidate in the search range, (2 * searchParamK - 1)^2 SADs per block, finds the least SAD
+		SMALL_DIAMOND, //4 neighbors of the best candidate until none is better, for small motion
+		LARGE_DIAMOND, //8 points of a diamond of radius 2 until the center is best, then its 4 neighbors
+		HEXAGON, //6 points of a hexagon of radius 2 until the center is best, then its 4 neighbors
+		PREDICTIVE; //vectors of neighboring blocks and the previous frame, then the 4 neighbors until none is better
+
+		/**
+		 * Creates a search of this kind
+		 * @return new search
+		 */
+		MotionSearch create() {
+			switch (this) {
+			case FULL:
+				return new FullSearch();
+			case SMALL_DIAMOND:
+				return new PatternSearch(PatternSearch.SMALL_DIAMOND, null);
+			case LARGE_DIAMOND:
+				return new PatternSearch(PatternSearch.LARGE_DIAMOND, PatternSearch.SMALL_DIAMOND);
+			case HEXAGON:
+				return new PatternSearch(PatternSearch.HEXAGON, PatternSearch.SMALL_DIAMOND);
+			case PREDICTIVE:
+				return new PredictiveSearch();
+			default:
+				return new LogarithmicSearch();
+			}
+		}
+	}
+
+}
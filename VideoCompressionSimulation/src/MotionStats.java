@@ -0,0 +1,47 @@
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counts the work and result of the motion search of each MacroBlock, so the
+ * MotionSearch kinds can be compared by SAD (Sum of Absolute Difference)
+ * evaluations per block against mean SAD on the same input. Blocks of the
+ * first frame have no search and are not counted, and frames that the
+ * FrameCache creates again are counted again. Reported with getStats.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class MotionStats {
+
+	private final MotionSearch.Kind kind;
+	private final LongAdder numOfBlocks = new LongAdder();
+	private final LongAdder numOfEvaluations = new LongAdder();
+	private final LongAdder totalError = new LongAdder();
+
+	MotionStats(MotionSearch.Kind kind) {
+		this.kind = kind;
+	}
+
+	/**
+	 * Adds the search of one block
+	 * @param evaluations number of SADs computed, see SearchWindow.getNumOfEvaluations
+	 * @param error SAD of the chosen motion vector
+	 */
+	void add(int evaluations, int error) {
+		numOfBlocks.increment();
+		numOfEvaluations.add(evaluations);
+		totalError.add(error);
+	}
+
+	/**
+	 * Searched blocks, SAD evaluations per block and mean SAD
+	 */
+	String getStats() {
+		long blocks = numOfBlocks.sum();
+		long perBlock = Math.max(1, blocks);
+		return "Motion search " + kind + ": " + blocks + " blocks, " + 
+				(Math.round((10.0 * numOfEvaluations.sum()) / perBlock) / 10.0) + " SAD evaluations per block, mean SAD " + 
+				(Math.round((10.0 * totalError.sum()) / perBlock) / 10.0);
+	}
+
+}
@@ -0,0 +1,57 @@
+/**
+ * MotionSearch that starts at the zero vector and moves to the best of a
+ * pattern of points around the best candidate until the center stays best,
+ * then tries a refinement pattern around it once. With the large diamond or
+ * hexagon followed by the small diamond these are the diamond search of Zhu
+ * and Ma and the hexagon-based search of Zhu, Lin, and Chau. Points that have
+ * already been tried are skipped, so a move only costs the new points, and
+ * every move lowers the best SAD, so the search always ends.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class PatternSearch implements MotionSearch {
+
+	//row and column offsets of the points, one pair after the other
+	static final int[] SMALL_DIAMOND = {-1, 0, 0, -1, 0, 1, 1, 0};
+	static final int[] LARGE_DIAMOND = {-2, 0, -1, -1, -1, 1, 0, -2, 0, 2, 1, -1, 1, 1, 2, 0};
+	static final int[] HEXAGON = {-2, -1, -2, 1, 0, -2, 0, 2, 2, -1, 2, 1};
+
+	private final int[] pattern;
+	private final int[] refinement;
+
+	/**
+	 * @param pattern points repeated until the center stays best
+	 * @param refinement points tried once at the end, or null
+	 */
+	PatternSearch(int[] pattern, int[] refinement) {
+		this.pattern = pattern;
+		this.refinement = refinement;
+	}
+
+	@Override
+	public void search(SearchWindow window) {
+		window.tryCandidate(window.getTopLeftRow(), window.getTopLeftCol());
+		while (tryPattern(window, pattern)) {
+			//keep moving toward the least SAD
+		}
+		if (refinement != null) {
+			tryPattern(window, refinement);
+		}
+	}
+
+	/**
+	 * Tries each point of a pattern around the best candidate
+	 * @return true if the best candidate moved
+	 */
+	static boolean tryPattern(SearchWindow window, int[] points) {
+		int centerRow = window.getBestRow();
+		int centerCol = window.getBestCol();
+		boolean moved = false;
+		for (int i = 0; i < points.length; i += 2) {
+			moved |= window.tryCandidate(centerRow + points[i], centerCol + points[i + 1]);
+		}
+		return moved;
+	}
+
+}
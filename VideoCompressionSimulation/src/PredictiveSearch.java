@@ -0,0 +1,70 @@
+/**
+ * MotionSearch that starts from the vectors neighboring blocks already
+ * moved by, since blocks next to each other and the same block one frame
+ * later almost always move together, for instance during a camera pan. In
+ * order it tries the zero vector, the median of the left, top, and top right
+ * neighbors' vectors, those three vectors, and the vector of the same block in
+ * the previous frame, then moves the small diamond around the best one until
+ * the center stays best. It stops early when the best SAD is at most
+ * ZERO_MOTION_ERROR per pixel, which is only noise, after the zero vector and
+ * again after the predictors. Neighbors come from SearchWindow.getNeighbor,
+ * so the result is the same for any number of threads.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class PredictiveSearch implements MotionSearch {
+
+	//SAD per pixel at or below which a candidate is good enough to stop the search
+	private static final int ZERO_MOTION_ERROR = 1;
+
+	@Override
+	public void search(SearchWindow window) {
+		int homeRow = window.getTopLeftRow();
+		int homeCol = window.getTopLeftCol();
+		int threshold = ZERO_MOTION_ERROR * window.macroBlockSize * window.macroBlockSize;
+
+		window.tryCandidate(homeRow, homeCol);
+		if (window.getBestError() <= threshold) {
+			return;
+		}
+
+		MacroBlock left = window.getNeighbor(-1, 0);
+		MacroBlock top = window.getNeighbor(0, -1);
+		MacroBlock topRight = window.getNeighbor(1, -1);
+		if (left != null && top != null && topRight != null) {
+			window.tryCandidate(homeRow + median(left.yMotionVector, top.yMotionVector, topRight.yMotionVector),
+					homeCol + median(left.xMotionVector, top.xMotionVector, topRight.xMotionVector));
+		}
+		tryNeighbor(window, left);
+		tryNeighbor(window, top);
+		tryNeighbor(window, topRight);
+		window.tryCandidate(homeRow + window.getPreviousYMotion(), homeCol + window.getPreviousXMotion());
+		if (window.getBestError() <= threshold) {
+			return;
+		}
+
+		while (PatternSearch.tryPattern(window, PatternSearch.SMALL_DIAMOND)) {
+			//keep moving toward the least SAD
+		}
+	}
+
+	@Override
+	public boolean usesPreviousMotion() {
+		return true;
+	}
+
+	/**
+	 * Tries the vector of a neighboring block, if there is one
+	 */
+	private static void tryNeighbor(SearchWindow window, MacroBlock neighbor) {
+		if (neighbor != null) {
+			window.tryCandidate(window.getTopLeftRow() + neighbor.yMotionVector, window.getTopLeftCol() + neighbor.xMotionVector);
+		}
+	}
+
+	private static int median(int a, int b, int c) {
+		return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+	}
+
+}
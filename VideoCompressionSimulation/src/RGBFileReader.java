@@ -1,13 +1,14 @@
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
 
 
 /**
- * Class used to read a video file in an .rgb format, and outputs file into
- * a byte array format which includes a computed grayscale channel y.
+ * Class used to read a video file in an .rgb format, and outputs it one frame
+ * at a time into a byte array format which includes a computed grayscale channel y.
  * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
  * @author John Leibowitz
  * @version 1.00
@@ -23,208 +24,415 @@ class RGBFileReader {
 	private static final float G_TO_GRAY_WEIGHT = 0.587f;
 	private static final float B_TO_GRAY_WEIGHT = 0.114f;
 	
+	/**
+	 * Same weights in 16 bit fixed point, see writeOneGrayFrameFixedPoint
+	 */
+	private static final int GRAY_FIXED_SHIFT = 16;
+	private static final int R_TO_GRAY_FIXED = 19595;
+	private static final int G_TO_GRAY_FIXED = 38470;
+	private static final int B_TO_GRAY_FIXED = 7471;
+	
 	RGBFileReader(CompressedVideo video) {
 		this.video = video;
 	}
 	
 	/**
 	 * The skeleton of this method was provided by instructor and then modified 
-	 * by myself to include padding and Y channel
+	 * by myself to include padding and to read one frame at a time. Each channel 
+	 * is read with one large read into the start of its padded space, and then
+	 * moved to its padded layout with bulk copies
+	 * @param inputStream stream positioned at the first red byte of the frame
+	 * @return padded r, g, and b channels of the frame, with room for the Y channel, 
+	 * or null if the stream ended before the frame
 	 */
-	byte[] getBytes(File file){
-		
-		System.out.println("Loading file...");
+	byte[] readOneFrame(InputStream inputStream) throws IOException {
+		//making room for any needed padding to fit whole macro blocks, 
+		//also making room for additional Y channel
+		byte[] bytes = new byte[video.frameSizePadded * CompressedVideo.NUM_CHANNELS_RGBY];
+		int channelSize = video.frameHeight * video.frameWidth;
+		int numRead = 0;
 		
-		byte[] bytes = null; 
-		InputStream inputStream = null;
-		
-		try {
-			inputStream = new FileInputStream(file);
-			//making room for any needed padding to fit whole macro blocks, 
-			//also making room for additional Y channel
-			long numOfBytes = video.frameHeightPadded * video.frameWidthPadded * video.numOfFrames * CompressedVideo.NUM_CHANNELS_RGBY;
-			bytes = new byte[(int)numOfBytes];
-	
-			int offset = 0;
-			int numRead = 0;
-		
-			//read bytes one frame at time, one row at a time
-			for (int curChannelFrame = 0; curChannelFrame < video.numOfFrames * CompressedVideo.NUM_CHANNELS_RGB; curChannelFrame++) {
-				for (int curRow = 0; curRow < video.frameHeight; curRow++) {
-					//read row
-					numRead = 0;
-					while (numRead < video.frameWidth - 1) {
-						numRead += inputStream.read(bytes, offset + numRead, video.frameWidth - numRead);	
-					}
-					offset += numRead;
-					//pad end columns of row if needed
-					if (video.frameWidthPadded > video.frameWidth) {
-						for (int i = 0; i < video.frameWidthPadded - video.frameWidth; i ++) {
-							bytes[offset + i] = bytes[offset - 1];
-						}
-						offset += video.frameWidthPadded - video.frameWidth;
-					}
+		//read bytes one channel at time
+		for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+			int offset = channelNum * video.frameSizePadded;
+			numRead = 0;
+			while (numRead < channelSize) {
+				int curRead = inputStream.read(bytes, offset + numRead, channelSize - numRead);
+				if (curRead < 0 && channelNum == 0 && numRead == 0) {
+					return null;
 				}
-				//pad last rows if needed with a copy of the last row
-				if (video.frameHeightPadded > video.frameHeight) {
-					for (int i = 0; i < video.frameHeightPadded - video.frameHeight; i ++) {
-						for (int j = 0; j < video.frameWidthPadded; j++) {
-							bytes[offset + (i * video.frameWidthPadded) + j] = bytes[offset - video.frameWidthPadded + j];
-						}
-					}
-					offset += video.frameWidthPadded * (video.frameHeightPadded - video.frameHeight);
-				}
-				
-				//call method to calculate Y channel and then blur
-				if ((curChannelFrame + 1) % 3 == 0) {
-					writeOneGrayFrame(bytes, offset);
-					blurOneGrayFrame(bytes, offset);
-					offset += video.frameSizePadded;
+				if (curRead < 0) {
+					throw new EOFException("Input ended in the middle of a frame");
 				}
-				
+				numRead += curRead;
 			}
+			spreadOneChannelFrame(bytes, offset);
+			padOneChannelFrame(bytes, offset);
+		}
+		return bytes;
+	}
 	
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
-		} catch (IOException e) {
-			e.printStackTrace();
-		} finally {
-			try {
-				inputStream.close();
-			} catch (IOException e) {
-				e.printStackTrace();
+	/**
+	 * Reads one frame with a single scattering read into the r, g, and b channel space of
+	 * the frame, then moves the rows to their padded layout with bulk copies. Moves the
+	 * channel's position, so each thread reading at once needs its own channel
+	 * @param channel channel of the input file
+	 * @param position file position of the first red byte of the frame
+	 * @return padded r, g, and b channels of the frame, with room for the Y channel
+	 */
+	byte[] readOneFrame(FileChannel channel, long position) throws IOException {
+		byte[] bytes = new byte[video.frameSizePadded * CompressedVideo.NUM_CHANNELS_RGBY];
+		int channelSize = video.frameHeight * video.frameWidth;
+		ByteBuffer[] channelBuffers = new ByteBuffer[CompressedVideo.NUM_CHANNELS_RGB];
+		for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+			channelBuffers[channelNum] = ByteBuffer.wrap(bytes, channelNum * video.frameSizePadded, channelSize);
+		}
+		
+		channel.position(position);
+		while (channelBuffers[CompressedVideo.NUM_CHANNELS_RGB - 1].hasRemaining()) {
+			if (channel.read(channelBuffers) < 0) {
+				throw new EOFException("Input ended in the middle of a frame");
 			}
 		}
+		
+		for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+			spreadOneChannelFrame(bytes, channelNum * video.frameSizePadded);
+			padOneChannelFrame(bytes, channelNum * video.frameSizePadded);
+		}
 		return bytes;
 	}
-
-	private void blurOneGrayFrame(byte[] bytes, int offset) {
-		byte[] oneFrameTempBytes = new byte[video.frameSizePadded];
-		System.arraycopy(bytes, offset, oneFrameTempBytes, 0, video.frameSizePadded);
-		oneFrameTempBytes = getAvgBytes(oneFrameTempBytes);
-		System.arraycopy(oneFrameTempBytes, 0, bytes, offset, video.frameSizePadded);
-	}
 	
 	/**
-	 *  This weighted average implementation idea came from article at: http://www.devx.com/dotnet/Article/45039
-	 * 	gets weight based on location
-	 *  dir map:
-	 *  0|1|2
-	 *  3|4|5
-	 *  6|7|8	
-	 */
-	private int getWeight(int dir) {
-		if (dir==4) return 4;
-		if (dir==0 || dir==2 || dir==6 || dir==8) return 1;
-		if (dir==1 || dir==3 || dir==5 || dir==7) return 2;
-		return 0;
+	 * Calculates the Y channel of a frame returned by readOneFrame and then blurs it
+	 * @param bytes padded frame
+	 */
+	void writeGrayFrame(byte[] bytes) {
+		int grayOffset = video.frameSizePadded * CompressedVideo.NUM_CHANNELS_RGB;
+		writeOneGrayFrame(bytes, grayOffset);
+		blurOneGrayFrame(bytes, grayOffset);
 	}
 
-	private byte[] getAvgBytes(byte[] oldBytes) {
-		byte[] newBytes = new byte[oldBytes.length];
-		int index = 0;
-		int sum = 0;
-		int numPix = 0;
-		int tempIndex = 0;
-		final int NINE_POS = 9;
-		
-		while (index < oldBytes.length) {
-			sum = 0;
-			numPix = 0;
-			for (int i = 0; i < NINE_POS; i++) {
-				tempIndex = getAdjIndex(index, i);
-				if (tempIndex >= 0) {
-					sum += getWeight(i) * (oldBytes[tempIndex] & 0xff);
-					numPix += getWeight(i);
+	/**
+	 * Computes one frame's blurred Y channel straight from its unpadded r, g, and b
+	 * channels, used when the input file is memory mapped instead of read into a byte array.
+	 * Only the Y channel is written, a row at a time, and then padded, which gives the same
+	 * bytes as padding the r, g, and b channels first since Y is computed pixel by pixel
+	 * @param rgbBytes buffer holding the unpadded rgb frame
+	 * @param position index of the frame's first red byte in rgbBytes
+	 * @return padded Y channel of the frame
+	 */
+	byte[] getGrayFrame(ByteBuffer rgbBytes, int position) {
+		final int width = video.frameWidth;
+		final int channelSize = video.frameHeight * width;
+		byte[] grayBytes = new byte[video.frameSizePadded];
+		byte[] rowBytes = new byte[width * CompressedVideo.NUM_CHANNELS_RGB]; //r, g, then b bytes of one row
+		int maxDif = 0;
+		int numDif = 0;
+
+		for (int row = 0; row < video.frameHeight; row++) {
+			for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+				rgbBytes.get(position + (channelNum * channelSize) + (row * width), rowBytes, channelNum * width, width);
+			}
+			int grayRow = row * video.frameWidthPadded;
+			if (video.grayConversion == GrayConversion.FLOAT) {
+				for (int col = 0; col < width; col++) {
+					grayBytes[grayRow + col] = (byte) getGrayFloat(rowBytes[col] & 0xff, 
+							rowBytes[width + col] & 0xff, rowBytes[(2 * width) + col] & 0xff);
+				}
+				continue;
+			}
+			for (int col = 0; col < width; col++) {
+				grayBytes[grayRow + col] = (byte) getGrayFixedPoint(rowBytes[col] & 0xff, 
+						rowBytes[width + col] & 0xff, rowBytes[(2 * width) + col] & 0xff);
+			}
+			if (video.grayConversion == GrayConversion.VERIFY) {
+				for (int col = 0; col < width; col++) {
+					int dif = Math.abs((grayBytes[grayRow + col] & 0xff) - getGrayFloat(rowBytes[col] & 0xff, 
+							rowBytes[width + col] & 0xff, rowBytes[(2 * width) + col] & 0xff));
+					if (dif > 0) {
+						numDif++;
+						maxDif = Math.max(maxDif, dif);
+					}
 				}
 			}
-
-			newBytes[index] = (byte) (sum/numPix);
-			index++;
 		}
-		
-		return newBytes;
+		reportGrayDifference(numDif, maxDif);
+
+		padOneChannelFrame(grayBytes, 0);
+		blurOneGrayFrame(grayBytes, 0);
+		return grayBytes;
 	}
 	
-	private int getAdjIndex(int index, int dir) {
-		if (dir==4) return index;
-		
-		int dif = 0;
-		int rowVal = video.frameWidthPadded;
-				
-		if (dir==0 || dir==3 || dir==6) {
-			if (checkLeftEdge(index)) {
-				return -1;
+	/**
+	 * Moves the rows of a channel to their padded row positions, see spreadRows
+	 */
+	private void spreadOneChannelFrame(byte[] bytes, int offset) {
+		spreadRows(bytes, offset, video.frameWidth, video.frameHeight, video.frameWidthPadded);
+	}
+	
+	/**
+	 * Pads a channel to fit whole macro blocks, see padChannel
+	 */
+	private void padOneChannelFrame(byte[] bytes, int offset) {
+		padChannel(bytes, offset, video.frameWidth, video.frameHeight, video.frameWidthPadded, video.frameHeightPadded);
+	}
+	
+	/**
+	 * Moves the rows of a channel that were read back to back to their padded row positions,
+	 * starting from the last row so no row is overwritten before it is moved
+	 * @param bytes destination array, rows already written back to back
+	 * @param offset index of the channel's first byte
+	 * @param width unpadded width of the channel
+	 * @param height unpadded height of the channel
+	 * @param widthPadded padded width of the channel
+	 */
+	static void spreadRows(byte[] bytes, int offset, int width, int height, int widthPadded) {
+		if (widthPadded > width) {
+			for (int curRow = height - 1; curRow > 0; curRow--) {
+				System.arraycopy(bytes, offset + (curRow * width), bytes, offset + (curRow * widthPadded), width);
 			}
-			dif--;
 		}
-
-		if (dir==0 || dir==1 || dir==2) {
-			if (checkTopEdge(index)) {
-				return -1;
+	}
+	
+	/**
+	 * Pads the end columns of every row with a copy of the row's last byte, and pads the
+	 * last rows with a copy of the last row
+	 * @param bytes destination array, rows already written at padded row positions
+	 * @param offset index of the channel's first byte
+	 * @param width unpadded width of the channel
+	 * @param height unpadded height of the channel
+	 * @param widthPadded padded width of the channel
+	 * @param heightPadded padded height of the channel
+	 */
+	static void padChannel(byte[] bytes, int offset, int width, int height, int widthPadded, int heightPadded) {
+		//pad end columns of each row if needed
+		if (widthPadded > width) {
+			for (int curRow = 0; curRow < height; curRow++) {
+				int rowOffset = offset + (curRow * widthPadded);
+				Arrays.fill(bytes, rowOffset + width, rowOffset + widthPadded, bytes[rowOffset + width - 1]);
 			}
-			dif -= rowVal;
 		}
+		//pad last rows if needed with a copy of the last row
+		int lastRowOffset = offset + ((height - 1) * widthPadded);
+		for (int curRow = height; curRow < heightPadded; curRow++) {
+			System.arraycopy(bytes, lastRowOffset, bytes, offset + (curRow * widthPadded), widthPadded);
+		}
+	}
+
+	/**
+	 *  This weighted average implementation idea came from article at: http://www.devx.com/dotnet/Article/45039
+	 *  weights by location:
+	 *  1|2|1
+	 *  2|4|2
+	 *  1|2|1
+	 *  The weights are separable, a [1 2 1] sum across each row followed by a [1 2 1] sum down each
+	 *  column. Neighbors outside the frame are left out of both the sum and the total weight, so on
+	 *  the edges the total weight is 3 instead of 4 in that direction. Blurs in place, keeping the row 
+	 *  sums of the previous and current row in two line buffers since those rows are overwritten.
+	 *  Also used by YUVFileReader to blur its Y channel.
+	 */
+	void blurOneGrayFrame(byte[] bytes, int offset) {
+		final int width = video.frameWidthPadded;
+		final int height = video.frameHeightPadded;
+		final int EDGE_WEIGHT = 3;
+		int[] prevRowSums = new int[width];
+		int[] curRowSums = new int[width];
 		
-		if (dir==2 || dir==5 || dir==8) {
-			if (checkRightEdge(index)) {
-				return -1;
+		sumOneRow(bytes, offset, curRowSums);
+		for (int row = 0; row < height; row++) {
+			int rowOffset = offset + (row * width);
+			if (row == 0 || row == height - 1) {
+				blurOneEdgeRow(bytes, rowOffset, (row == 0) ? null : prevRowSums, curRowSums, row < height - 1);
+			}
+			else {
+				int nextRowOffset = rowOffset + width;
+				int last = width - 1;
+				
+				//left and right edge, total weight 3 * 4
+				int nextSum = (2 * (bytes[nextRowOffset] & 0xff)) + (bytes[nextRowOffset + 1] & 0xff);
+				bytes[rowOffset] = (byte) ((prevRowSums[0] + (2 * curRowSums[0]) + nextSum) / (EDGE_WEIGHT * 4));
+				nextSum = (bytes[nextRowOffset + last - 1] & 0xff) + (2 * (bytes[nextRowOffset + last] & 0xff));
+				bytes[rowOffset + last] = (byte) ((prevRowSums[last] + (2 * curRowSums[last]) + nextSum) / (EDGE_WEIGHT * 4));
+				
+				//interior, total weight 16
+				for (int col = 1; col < last; col++) {
+					int next = nextRowOffset + col;
+					nextSum = (bytes[next - 1] & 0xff) + (2 * (bytes[next] & 0xff)) + (bytes[next + 1] & 0xff);
+					bytes[rowOffset + col] = (byte) ((prevRowSums[col] + (2 * curRowSums[col]) + nextSum) >> 4);
+				}
+			}
+			
+			//current row sums become previous row sums, next row is still unblurred
+			int[] tempRowSums = prevRowSums;
+			prevRowSums = curRowSums;
+			curRowSums = tempRowSums;
+			if (row < height - 1) {
+				sumOneRow(bytes, rowOffset + width, curRowSums);
 			}
-			dif++;
 		}
+	}
+	
+	/**
+	 * Blurs the first or last row of a frame, where the column sum only has two rows
+	 * @param bytes frame bytes
+	 * @param rowOffset index of the row's first byte
+	 * @param prevRowSums row sums of the previous row, null for the first row
+	 * @param curRowSums row sums of this row
+	 * @param hasNextRow true if the row below is part of the frame
+	 */
+	private void blurOneEdgeRow(byte[] bytes, int rowOffset, int[] prevRowSums, int[] curRowSums, boolean hasNextRow) {
+		final int width = video.frameWidthPadded;
+		final int nextRowOffset = rowOffset + width;
+		int columnWeight = 2 + ((prevRowSums != null) ? 1 : 0) + (hasNextRow ? 1 : 0);
 		
-		if (dir==6 || dir==7 || dir==8) {
-			if (checkBottomEdge(index)) {
-				return -1;
+		for (int col = 0; col < width; col++) {
+			int sum = 2 * curRowSums[col];
+			int rowWeight = 2;
+			if (col > 0) {
+				rowWeight++;
+			}
+			if (col < width - 1) {
+				rowWeight++;
 			}
-			dif += rowVal;
+			if (prevRowSums != null) {
+				sum += prevRowSums[col];
+			}
+			if (hasNextRow) {
+				sum += 2 * (bytes[nextRowOffset + col] & 0xff);
+				if (col > 0) {
+					sum += bytes[nextRowOffset + col - 1] & 0xff;
+				}
+				if (col < width - 1) {
+					sum += bytes[nextRowOffset + col + 1] & 0xff;
+				}
+			}
+			bytes[rowOffset + col] = (byte) (sum / (rowWeight * columnWeight));
 		}
-		
-		return index + dif;
-		
 	}
 	
-	private boolean checkLeftEdge(int index) {
-		int width = video.frameWidthPadded;
-		index %= width;
-		return (index == 0);
+	/**
+	 * Computes the [1 2 1] weighted sum across one row for every column, leaving out 
+	 * neighbors outside the frame
+	 */
+	private void sumOneRow(byte[] bytes, int rowOffset, int[] rowSums) {
+		final int last = video.frameWidthPadded - 1;
+		
+		rowSums[0] = (2 * (bytes[rowOffset] & 0xff)) + (bytes[rowOffset + 1] & 0xff);
+		for (int col = 1; col < last; col++) {
+			int index = rowOffset + col;
+			rowSums[col] = (bytes[index - 1] & 0xff) + (2 * (bytes[index] & 0xff)) + (bytes[index + 1] & 0xff);
+		}
+		rowSums[last] = (bytes[rowOffset + last - 1] & 0xff) + (2 * (bytes[rowOffset + last] & 0xff));
 	}
 	
-	private boolean checkRightEdge(int index) {
-		int width = video.frameWidthPadded;
-		index %= width;
-		return (index == width - 1);
+	/**
+	 * Helper method for writeGrayFrame to write one Gray (Y channel) frame at a time
+	 */
+	private void writeOneGrayFrame(byte[] bytes, int offset) {
+		switch (video.grayConversion) {
+		case FLOAT:
+			writeOneGrayFrameFloat(bytes, offset, bytes, offset);
+			break;
+		case FIXED_POINT:
+			writeOneGrayFrameFixedPoint(bytes, offset);
+			break;
+		case VERIFY:
+			writeOneGrayFrameFixedPoint(bytes, offset);
+			verifyOneGrayFrame(bytes, offset);
+			break;
+		}
 	}
 	
-	private boolean checkTopEdge(int index) {
-		int width = video.frameWidthPadded;
-		int height = video.frameHeightPadded;
-		int colorSize = height * width;
-		index %= colorSize;
-		return (index >= 0 && index < width);
+	/**
+	 * Float implementation of the Y channel, kept as the reference for the fixed point one
+	 * @param bytes frame bytes
+	 * @param offset index of the frame's first Y channel byte
+	 * @param grayBytes destination array
+	 * @param grayOffset index of the first destination byte
+	 */
+	private void writeOneGrayFrameFloat(byte[] bytes, int offset, byte[] grayBytes, int grayOffset) {
+		int startPos = offset - (video.frameSizePadded * CompressedVideo.NUM_CHANNELS_RGB);
+		for (int i = 0; i < video.frameSizePadded; i++) {
+			grayBytes[grayOffset + i] = (byte) getGrayFloat(bytes[startPos + i] & 0xff, 
+					bytes[startPos + i + video.frameSizePadded] & 0xff, 
+					bytes[startPos + i + (video.frameSizePadded * 2)] & 0xff);
+		}
+		
 	}
-	
-	private boolean checkBottomEdge(int index) {
-		int width = video.frameWidthPadded;
-		int height = video.frameHeightPadded;
-		int colorSize = height * width;
-		index %= colorSize;
-		return (index >= colorSize - width);
+
+	/**
+	 * Y value of one pixel, see writeOneGrayFrameFloat
+	 */
+	private static int getGrayFloat(int red, int green, int blue) {
+		int tempR = (int) (red * R_TO_GRAY_WEIGHT);
+		int tempG = (int) (green * G_TO_GRAY_WEIGHT);
+		int tempB = (int) (blue * B_TO_GRAY_WEIGHT);
+		int tempGray = (tempR + tempG + tempB > 255) ? 255 : tempR + tempG + tempB;   
+		if (tempGray < 0) tempGray = 0;
+		return tempGray;
 	}
 	
 	/**
-	 * Helper method for getBytes to write one Gray (Y channel) frame at a time
+	 * Integer implementation of the Y channel. Each weighted channel is truncated on its own like
+	 * the float implementation, and for every byte value (v * R_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT 
+	 * equals (int) (v * R_TO_GRAY_WEIGHT), same for green and blue, so the result is bit for bit
+	 * the same. The weighted sum is at most 254 so no clamping is needed. The loop is one
+	 * straight pass over three source arrays and one destination so the JIT can vectorize it.
 	 */
-	private void writeOneGrayFrame(byte[] bytes, int offset) {
-		int startPos = offset - (video.frameSizePadded * CompressedVideo.NUM_CHANNELS_RGB);
+	private void writeOneGrayFrameFixedPoint(byte[] bytes, int offset) {
+		final int redPos = offset - (video.frameSizePadded * CompressedVideo.NUM_CHANNELS_RGB);
+		final int greenPos = redPos + video.frameSizePadded;
+		final int bluePos = greenPos + video.frameSizePadded;
 		for (int i = 0; i < video.frameSizePadded; i++) {
-			int tempR = (int) ((bytes[startPos + i] & 0xff) * R_TO_GRAY_WEIGHT);
-			int tempG = (int) ((bytes[startPos + i + video.frameSizePadded] & 0xff) * G_TO_GRAY_WEIGHT);
-			int tempB = (int) ((bytes[startPos + i + (video.frameSizePadded * 2)] & 0xff) * B_TO_GRAY_WEIGHT);
-			int tempGray = (tempR + tempG + tempB > 255) ? 255 : tempR + tempG + tempB;   
-			if (tempGray < 0) tempGray = 0;
-			bytes[offset + i] = (byte) tempGray;
+			int tempR = ((bytes[redPos + i] & 0xff) * R_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT;
+			int tempG = ((bytes[greenPos + i] & 0xff) * G_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT;
+			int tempB = ((bytes[bluePos + i] & 0xff) * B_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT;
+			bytes[offset + i] = (byte) (tempR + tempG + tempB);
 		}
+	}
+
+	/**
+	 * Y value of one pixel, same as writeOneGrayFrameFixedPoint
+	 */
+	private static int getGrayFixedPoint(int red, int green, int blue) {
+		return ((red * R_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT) + ((green * G_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT) + 
+				((blue * B_TO_GRAY_FIXED) >> GRAY_FIXED_SHIFT);
+	}
+	
+	/**
+	 * Checks a Y channel written by writeOneGrayFrameFixedPoint against the float implementation,
+	 * and reports when any byte is off by more than 1
+	 */
+	private void verifyOneGrayFrame(byte[] bytes, int offset) {
+		byte[] floatGrayBytes = new byte[video.frameSizePadded];
+		writeOneGrayFrameFloat(bytes, offset, floatGrayBytes, 0);
 		
+		int maxDif = 0;
+		int numDif = 0;
+		for (int i = 0; i < video.frameSizePadded; i++) {
+			int dif = Math.abs((bytes[offset + i] & 0xff) - (floatGrayBytes[i] & 0xff));
+			if (dif > 0) {
+				numDif++;
+				maxDif = Math.max(maxDif, dif);
+			}
+		}
+		reportGrayDifference(numDif, maxDif);
+	}
+
+	/**
+	 * Reports a fixed point Y channel that is off from the float one by more than 1 in any byte
+	 */
+	private static void reportGrayDifference(int numDif, int maxDif) {
+		if (maxDif > 1) {
+			System.err.println("Fixed point Y channel differs from float Y channel: " + numDif + 
+					" bytes, max difference " + maxDif);
+		}
+	}
+	
+	/**
+	 * Y channel implementation, see writeOneGrayFrame
+	 */
+	enum GrayConversion {
+		FLOAT, FIXED_POINT, VERIFY
 	}
 }
@@ -0,0 +1,121 @@
+/**
+ * DctEngine that sums over every pixel for every coefficient and the other
+ * way around, exactly as DCTBlock did originally. It is the slowest engine
+ * and is kept as the reference the others are checked against, see
+ * DctCrossCheck class.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class ReferenceDctEngine implements DctEngine {
+
+	private static final float ZERO_INDEX_FACTOR = (float) (1 / Math.sqrt(2));
+
+	private final int dctBlockSize;
+	private final float[][] cosTable;
+	private final float scaleFactor;
+
+	/**
+	 * One block of input and one of output for the batch calls, which are done one block at a time
+	 */
+	private final ThreadLocal<float[][]> blockBuffers;
+
+	ReferenceDctEngine(int dctBlockSize, float[][] cosTable) {
+		this.dctBlockSize = dctBlockSize;
+		this.cosTable = cosTable;
+		scaleFactor = 2f / dctBlockSize;
+		blockBuffers = ThreadLocal.withInitial(() -> new float[2][dctBlockSize * dctBlockSize]);
+	}
+
+	@Override
+	public void forward(float[] pixels, int pixelOffset, float[] coefficients, int coefficientOffset) {
+		for (int u = 0; u < dctBlockSize; u++) {
+			for (int v = 0; v < dctBlockSize; v++) {
+				float result = 0;
+				for (int x = 0; x < dctBlockSize; x++) {
+					for (int y = 0; y < dctBlockSize; y++) {
+						result += (pixels[pixelOffset + (x * dctBlockSize) + y] * cosTable[u][x] * cosTable[v][y]);
+					}
+				}
+				if (u == 0) {
+					result *= ZERO_INDEX_FACTOR;
+				}
+				if (v == 0) {
+					result *= ZERO_INDEX_FACTOR;
+				}
+				result *= scaleFactor;
+				coefficients[coefficientOffset + (u * dctBlockSize) + v] = result;
+			}
+		}
+	}
+
+	@Override
+	public void inverse(float[] coefficients, int coefficientOffset, float[] pixels, int pixelOffset, int numRows, int numColumns) {
+		for (int x = 0; x < dctBlockSize; x++) {
+			for (int y = 0; y < dctBlockSize; y++) {
+				float result = 0;
+				for (int u = 0; u < numRows; u++) {
+					for (int v = 0; v < numColumns; v++) {
+						float partialResult = (coefficients[coefficientOffset + (u * dctBlockSize) + v] * 
+								cosTable[u][x] * cosTable[v][y]);
+						if (u == 0) {
+							partialResult *= ZERO_INDEX_FACTOR;
+						}
+						if (v == 0) {
+							partialResult *= ZERO_INDEX_FACTOR;
+						}
+						result += partialResult;
+					}
+				}
+				pixels[pixelOffset + (x * dctBlockSize) + y] = result * scaleFactor;
+			}
+		}
+	}
+
+	@Override
+	public float inverseDC(float dcCoefficient) {
+		float partialResult = dcCoefficient * cosTable[0][0] * cosTable[0][0];
+		partialResult *= ZERO_INDEX_FACTOR;
+		partialResult *= ZERO_INDEX_FACTOR;
+		return partialResult * scaleFactor;
+	}
+
+	@Override
+	public void forwardBatch(float[][] blocks, int numOfBlocks) {
+		float[][] buffers = blockBuffers.get();
+		for (int b = 0; b < numOfBlocks; b++) {
+			getBlock(blocks, b, buffers[0]);
+			forward(buffers[0], 0, buffers[1], 0);
+			setBlock(blocks, b, buffers[1]);
+		}
+	}
+
+	@Override
+	public void inverseBatch(float[][] blocks, int numOfBlocks) {
+		float[][] buffers = blockBuffers.get();
+		for (int b = 0; b < numOfBlocks; b++) {
+			getBlock(blocks, b, buffers[0]);
+			inverse(buffers[0], 0, buffers[1], 0, dctBlockSize, dctBlockSize);
+			setBlock(blocks, b, buffers[1]);
+		}
+	}
+
+	/**
+	 * Copies block b out of a batch stored like in forwardBatch
+	 */
+	static void getBlock(float[][] blocks, int b, float[] block) {
+		for (int i = 0; i < block.length; i++) {
+			block[i] = blocks[i][b];
+		}
+	}
+
+	/**
+	 * Copies a block into place b of a batch stored like in forwardBatch
+	 */
+	static void setBlock(float[][] blocks, int b, float[] block) {
+		for (int i = 0; i < block.length; i++) {
+			blocks[i][b] = block[i];
+		}
+	}
+
+}
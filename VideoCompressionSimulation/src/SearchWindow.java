@@ -0,0 +1,236 @@
+import java.util.Arrays;
+
+
+/**
+ * Class that a MotionSearch uses to look for one MacroBlock in the previous
+ * frame. Holds the Y values of the block, read once per block, the Y channel
+ * of the previous frame, and the best candidate so far. Candidates are given
+ * by the padded row and column of their top left pixel and must lie inside
+ * the padded frame and within searchParamK - 1 pixels of the block, which is
+ * as far as the logarithmic search reaches. Counts SAD (Sum of Absolute
+ * Difference) evaluations for the MotionStats class. Also gives predictive
+ * searches the motion vectors of blocks searched before this one and of the
+ * same block in the previous frame. One SearchWindow is used per thread for
+ * a whole frame, see MacroBlock.createMacroBlocksForFrame.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class SearchWindow {
+
+	final int searchParamK;
+	final int searchRange;
+	final int macroBlockSize;
+
+	private final int frameWidthPadded;
+	private final int frameHeightPadded;
+	private final int grayOffset;
+	private final byte[] prevGray;
+	private final byte[] curGray;
+
+	/**
+	 * MacroBlocks of the frame, filled in as they are searched, indexed by xIndex then yIndex
+	 */
+	private final MacroBlock[][] macroBlocks;
+
+	/**
+	 * Motion vectors of the previous frame, see MotionHistory, null if the search does not use them
+	 */
+	private final short[] previousMotion;
+
+	/**
+	 * Y values of the block, one row after the other
+	 */
+	private final int[] tile;
+
+	/**
+	 * Candidates tried for the current block, a candidate is tried when its entry equals blockStamp,
+	 * (searchRange + rowOffset) * searchWidth + searchRange + columnOffset
+	 */
+	private final int[] tried;
+	private final int searchWidth;
+	private int blockStamp;
+
+	private int xIndex;
+	private int yIndex;
+	private int topLeftRow;
+	private int topLeftCol;
+	private int bestRow;
+	private int bestCol;
+	private int bestError;
+	private int numOfEvaluations;
+
+	/**
+	 * @param parentVid parent CompressedVideo
+	 * @param frameNum frame number, at least 1
+	 * @param macroBlocks MacroBlocks of the frame, filled in as they are searched
+	 */
+	SearchWindow(CompressedVideo parentVid, int frameNum, MacroBlock[][] macroBlocks) {
+		searchParamK = parentVid.searchParamK;
+		searchRange = Math.max(0, searchParamK - 1);
+		macroBlockSize = parentVid.macroBlockSize;
+		frameWidthPadded = parentVid.frameWidthPadded;
+		frameHeightPadded = parentVid.frameHeightPadded;
+		grayOffset = parentVid.frameStore.getGrayOffset();
+		curGray = parentVid.frameStore.getGrayFrame(frameNum);
+		prevGray = parentVid.frameStore.getGrayFrame(frameNum - 1);
+		tile = new int[macroBlockSize * macroBlockSize];
+		searchWidth = (2 * searchRange) + 1;
+		tried = new int[searchWidth * searchWidth];
+		this.macroBlocks = macroBlocks;
+		previousMotion = parentVid.motionSearch.usesPreviousMotion() ? parentVid.motionHistory.get(frameNum - 1) : null;
+	}
+
+	/**
+	 * Starts the search for a block, the best candidate is cleared
+	 * @param yIndex macro block row
+	 * @param xIndex macro block column
+	 */
+	void setBlock(int yIndex, int xIndex) {
+		this.xIndex = xIndex;
+		this.yIndex = yIndex;
+		topLeftRow = yIndex * macroBlockSize;
+		topLeftCol = xIndex * macroBlockSize;
+		for (int i = 0; i < macroBlockSize; i++) {
+			int row = grayOffset + ((topLeftRow + i) * frameWidthPadded) + topLeftCol;
+			for (int j = 0; j < macroBlockSize; j++) {
+				tile[(i * macroBlockSize) + j] = curGray[row + j];
+			}
+		}
+		if (++blockStamp == 0) {
+			Arrays.fill(tried, 0);
+			blockStamp = 1;
+		}
+		bestRow = topLeftRow;
+		bestCol = topLeftCol;
+		bestError = Integer.MAX_VALUE;
+		numOfEvaluations = 0;
+	}
+
+	int getTopLeftRow() {
+		return topLeftRow;
+	}
+
+	int getTopLeftCol() {
+		return topLeftCol;
+	}
+
+	int getBestRow() {
+		return bestRow;
+	}
+
+	int getBestCol() {
+		return bestCol;
+	}
+
+	int getBestError() {
+		return bestError;
+	}
+
+	int getNumOfEvaluations() {
+		return numOfEvaluations;
+	}
+
+	/**
+	 * Gets a block that was searched before this one in the same band of rows, see
+	 * MacroBlock.createMacroBlocksForFrame, so the same blocks are there for any number of threads
+	 * @param xOffset macro block columns to the right
+	 * @param yOffset macro block rows down, 0 or less
+	 * @return the block, or null if it is outside the frame or the band or not searched yet
+	 */
+	MacroBlock getNeighbor(int xOffset, int yOffset) {
+		int x = xIndex + xOffset;
+		int y = yIndex + yOffset;
+		int bandFirstRow = yIndex - (yIndex % MacroBlock.ROWS_PER_BAND);
+		if (x < 0 || x >= macroBlocks.length || y < bandFirstRow || y > yIndex || (y == yIndex && x >= xIndex)) {
+			return null;
+		}
+		return macroBlocks[x][y];
+	}
+
+	/**
+	 * Column part of the motion vector of the same block in the previous frame
+	 */
+	int getPreviousXMotion() {
+		return previousMotion[MotionHistory.getIndex(macroBlocks.length, xIndex, yIndex)];
+	}
+
+	/**
+	 * Row part of the motion vector of the same block in the previous frame
+	 */
+	int getPreviousYMotion() {
+		return previousMotion[MotionHistory.getIndex(macroBlocks.length, xIndex, yIndex) + 1];
+	}
+
+	/**
+	 * Sets the best candidate, for searches that do their own bookkeeping
+	 */
+	void setBest(int row, int col, int error) {
+		bestRow = row;
+		bestCol = col;
+		bestError = error;
+	}
+
+	/**
+	 * Whether a candidate lies inside the padded frame
+	 */
+	boolean isInbound(int row, int col) {
+		if (row < 0 || col < 0) return false;
+		if (row + macroBlockSize > frameHeightPadded || col + macroBlockSize > frameWidthPadded) return false;
+		return true;
+	}
+
+	/**
+	 * Evaluates a candidate and makes it the best one if its error is less than the best so far,
+	 * so earlier candidates win ties. Candidates outside the frame or the search range, or that
+	 * have already been tried for this block, are skipped
+	 * @param row padded row of the candidate's top left pixel
+	 * @param col padded column of the candidate's top left pixel
+	 * @return true if the candidate is the new best one
+	 */
+	boolean tryCandidate(int row, int col) {
+		int rowOffset = row - topLeftRow;
+		int colOffset = col - topLeftCol;
+		if (Math.abs(rowOffset) > searchRange || Math.abs(colOffset) > searchRange || !isInbound(row, col)) {
+			return false;
+		}
+		int triedIndex = ((searchRange + rowOffset) * searchWidth) + searchRange + colOffset;
+		if (tried[triedIndex] == blockStamp) {
+			return false;
+		}
+		tried[triedIndex] = blockStamp;
+		int error = getSAD(row, col, bestError);
+		if (error < bestError) {
+			setBest(row, col, error);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Calculates potential macroblock motion vector error based on sum of absolute difference between pixels.
+	 * Stops once the partial sum is past bound, a candidate with more error than the best so far is never
+	 * picked, not even one that wins ties, so only the sums of picked candidates need to be exact
+	 * @param row padded row of the candidate's top left pixel, must be inbound
+	 * @param col padded column of the candidate's top left pixel, must be inbound
+	 * @param bound error of the best candidate so far
+	 * @return the error, or a partial sum greater than bound
+	 */
+	int getSAD(int row, int col, int bound) {
+		numOfEvaluations++;
+		int targetIndex = grayOffset + (row * frameWidthPadded) + col;
+		int error = 0;
+		for (int i = 0; i < macroBlockSize; i++) {
+			int tileRow = i * macroBlockSize;
+			int targetRow = targetIndex + (i * frameWidthPadded);
+			for (int j = 0; j < macroBlockSize; j++) {
+				error += Math.abs(tile[tileRow + j] - prevGray[targetRow + j]);
+			}
+			if (error > bound) {
+				return error;
+			}
+		}
+		return error;
+	}
+
+}
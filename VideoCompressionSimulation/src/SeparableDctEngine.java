@@ -0,0 +1,176 @@
+import java.util.Arrays;
+
+
+/**
+ * DctEngine that does the 2D transform as a 1D transform over y followed by a
+ * 1D transform over x, which is N^3 multiply-adds per block instead of N^4.
+ * Works for any block size. The C(k) and 2/N factors are folded into the
+ * cosine table, which makes it an orthonormal basis, so the same table is
+ * used in both directions.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class SeparableDctEngine implements DctEngine {
+
+	private final int dctBlockSize;
+
+	/**
+	 * basis[k][i] = sqrt(2/N) C(k) cosTable[k][i]
+	 */
+	private final float[][] basis;
+
+	/**
+	 * Work space for the result of the first 1D transform, one per thread
+	 */
+	private final ThreadLocal<float[]> partialBuffers;
+	private final ThreadLocal<float[][]> partialBatches;
+
+	SeparableDctEngine(int dctBlockSize, float[][] cosTable) {
+		this.dctBlockSize = dctBlockSize;
+		basis = new float[dctBlockSize][dctBlockSize];
+		double scale = Math.sqrt(2.0 / dctBlockSize);
+		for (int k = 0; k < dctBlockSize; k++) {
+			double factor = (k == 0) ? scale / Math.sqrt(2) : scale;
+			for (int i = 0; i < dctBlockSize; i++) {
+				basis[k][i] = (float) (factor * cosTable[k][i]);
+			}
+		}
+		partialBuffers = ThreadLocal.withInitial(() -> new float[dctBlockSize * dctBlockSize]);
+		partialBatches = ThreadLocal.withInitial(() -> new float[dctBlockSize * dctBlockSize][BATCH_SIZE]);
+	}
+
+	@Override
+	public void forward(float[] pixels, int pixelOffset, float[] coefficients, int coefficientOffset) {
+		final int n = dctBlockSize;
+		float[] partial = partialBuffers.get(); //partial[x][v], pixels transformed over y
+
+		for (int x = 0; x < n; x++) {
+			int column = pixelOffset + (x * n);
+			for (int v = 0; v < n; v++) {
+				float[] basisV = basis[v];
+				float result = 0;
+				for (int y = 0; y < n; y++) {
+					result += pixels[column + y] * basisV[y];
+				}
+				partial[(x * n) + v] = result;
+			}
+		}
+
+		for (int u = 0; u < n; u++) {
+			float[] basisU = basis[u];
+			int row = coefficientOffset + (u * n);
+			for (int v = 0; v < n; v++) {
+				float result = 0;
+				for (int x = 0; x < n; x++) {
+					result += basisU[x] * partial[(x * n) + v];
+				}
+				coefficients[row + v] = result;
+			}
+		}
+	}
+
+	@Override
+	public void inverse(float[] coefficients, int coefficientOffset, float[] pixels, int pixelOffset, int numRows, int numColumns) {
+		final int n = dctBlockSize;
+		float[] partial = partialBuffers.get(); //partial[u][y], coefficients transformed over v
+
+		for (int u = 0; u < numRows; u++) {
+			int row = coefficientOffset + (u * n);
+			for (int y = 0; y < n; y++) {
+				float result = 0;
+				for (int v = 0; v < numColumns; v++) {
+					result += coefficients[row + v] * basis[v][y];
+				}
+				partial[(u * n) + y] = result;
+			}
+		}
+
+		for (int x = 0; x < n; x++) {
+			int column = pixelOffset + (x * n);
+			for (int y = 0; y < n; y++) {
+				float result = 0;
+				for (int u = 0; u < numRows; u++) {
+					result += basis[u][x] * partial[(u * n) + y];
+				}
+				pixels[column + y] = result;
+			}
+		}
+	}
+
+	@Override
+	public float inverseDC(float dcCoefficient) {
+		return basis[0][0] * (dcCoefficient * basis[0][0]);
+	}
+
+	@Override
+	public void forwardBatch(float[][] blocks, int numOfBlocks) {
+		final int n = dctBlockSize;
+		float[][] partial = partialBatches.get(); //partial[x][v], pixels transformed over y
+
+		for (int x = 0; x < n; x++) {
+			for (int v = 0; v < n; v++) {
+				float[] basisV = basis[v];
+				float[] result = partial[(x * n) + v];
+				Arrays.fill(result, 0, numOfBlocks, 0);
+				for (int y = 0; y < n; y++) {
+					float[] pixels = blocks[(x * n) + y];
+					float factor = basisV[y];
+					for (int b = 0; b < numOfBlocks; b++) {
+						result[b] += pixels[b] * factor;
+					}
+				}
+			}
+		}
+
+		for (int u = 0; u < n; u++) {
+			float[] basisU = basis[u];
+			for (int v = 0; v < n; v++) {
+				float[] result = blocks[(u * n) + v];
+				Arrays.fill(result, 0, numOfBlocks, 0);
+				for (int x = 0; x < n; x++) {
+					float factor = basisU[x];
+					float[] values = partial[(x * n) + v];
+					for (int b = 0; b < numOfBlocks; b++) {
+						result[b] += factor * values[b];
+					}
+				}
+			}
+		}
+	}
+
+	@Override
+	public void inverseBatch(float[][] blocks, int numOfBlocks) {
+		final int n = dctBlockSize;
+		float[][] partial = partialBatches.get(); //partial[u][y], coefficients transformed over v
+
+		for (int u = 0; u < n; u++) {
+			for (int y = 0; y < n; y++) {
+				float[] result = partial[(u * n) + y];
+				Arrays.fill(result, 0, numOfBlocks, 0);
+				for (int v = 0; v < n; v++) {
+					float[] coefficients = blocks[(u * n) + v];
+					float factor = basis[v][y];
+					for (int b = 0; b < numOfBlocks; b++) {
+						result[b] += coefficients[b] * factor;
+					}
+				}
+			}
+		}
+
+		for (int x = 0; x < n; x++) {
+			for (int y = 0; y < n; y++) {
+				float[] result = blocks[(x * n) + y];
+				Arrays.fill(result, 0, numOfBlocks, 0);
+				for (int u = 0; u < n; u++) {
+					float factor = basis[u][x];
+					float[] values = partial[(u * n) + y];
+					for (int b = 0; b < numOfBlocks; b++) {
+						result[b] += factor * values[b];
+					}
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * FrameStore that reads raw .rgb frames off a stream, such as standard input
+ * piped from another process, until the stream ends. The number of frames is
+ * not known up front and the stream can not be read twice, so only the frames
+ * the FramePipeline is still working on are kept: each frame is released once
+ * the next frame's motion search and its own DCTBlocks are done. Frames are
+ * kept in a ring of ringSize slots, and reading waits for a slot to be
+ * released, which bounds the memory used no matter how long the stream is.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class StreamFrameStore implements FrameStore {
+
+	private final CompressedVideo video;
+	private final RGBFileReader reader;
+	private final InputStream inputStream;
+
+	/**
+	 * Padded RGBY frames, slot is frame number modulo ringSize, null when the slot is free. Has a slot
+	 * for every frame the pipeline can hold, see FramePipeline.getMaxFramesHeld
+	 */
+	private final int ringSize;
+	private final byte[][] ring;
+
+	StreamFrameStore(CompressedVideo video, InputStream inputStream) {
+		this.video = video;
+		this.inputStream = new BufferedInputStream(inputStream);
+		reader = new RGBFileReader(video);
+		ringSize = FramePipeline.getMaxFramesHeld(video);
+		ring = new byte[ringSize][];
+	}
+
+	@Override
+	public byte getOneByte(int frameNum, CompressedVideo.Channel channel, int row, int column) {
+		return ring[frameNum % ringSize][(channel.getColorNum() * video.frameSizePadded) +
+		                                  (row * video.frameWidthPadded) +
+		                                  column];
+	}
+
+	@Override
+	public byte[] getGrayFrame(int frameNum) {
+		return ring[frameNum % ringSize];
+	}
+
+	@Override
+	public int getGrayOffset() {
+		return CompressedVideo.Channel.GRAY.getColorNum() * video.frameSizePadded;
+	}
+
+	@Override
+	public void getRGB(int frameNum, int row, int column, int[] rgb, int offset, int length) {
+		byte[] frameBytes = ring[frameNum % ringSize];
+		int red = (row * video.frameWidthPadded) + column;
+		int green = red + video.frameSizePadded;
+		int blue = green + video.frameSizePadded;
+		for (int i = 0; i < length; i++) {
+			rgb[offset + i] = ((frameBytes[red + i] & 0xff) << 16) | ((frameBytes[green + i] & 0xff) << 8) | (frameBytes[blue + i] & 0xff);
+		}
+	}
+
+	@Override
+	public boolean readFrame(int frameNum) throws IOException {
+		if (frameNum == 0) {
+			System.out.println("Reading frames from stream...");
+		}
+		waitForSlot(frameNum);
+		byte[] bytes = reader.readOneFrame(inputStream);
+		if (bytes == null) {
+			inputStream.close();
+			return false;
+		}
+		setSlot(frameNum, bytes);
+		return true;
+	}
+
+	@Override
+	public void writeGrayFrame(int frameNum) {
+		reader.writeGrayFrame(ring[frameNum % ringSize]);
+	}
+
+	@Override
+	public synchronized void releaseFrame(int frameNum) {
+		ring[frameNum % ringSize] = null;
+		notifyAll();
+	}
+
+	@Override
+	public boolean hasFrame(int frameNum) {
+		return false; //the stream can not be read again once a frame is released
+	}
+
+	private synchronized void waitForSlot(int frameNum) throws IOException {
+		try {
+			while (ring[frameNum % ringSize] != null) {
+				wait();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for room for frame " + frameNum, e);
+		}
+	}
+
+	private synchronized void setSlot(int frameNum, byte[] bytes) {
+		ring[frameNum % ringSize] = bytes;
+	}
+
+}
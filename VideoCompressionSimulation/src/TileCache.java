@@ -0,0 +1,156 @@
+import java.util.Arrays;
+
+
+/**
+ * Class that holds reconstructed DCTBlock tiles, the packed RGB pixels that
+ * come out of quantizing and taking the IDCT of one block, so a block that is
+ * rendered again with the same quantization value is only copied to the
+ * image. Tiles are keyed by frame number, block number, and quantization
+ * value, which is everything the result depends on, and stay valid when the
+ * FrameCache evicts their frame. The cache is set associative with
+ * WAYS tiles per set and least recently used replacement within a set, and
+ * all tiles live in one array sized from the byte budget up front, so
+ * nothing is allocated after construction. Hit, miss and eviction counts are
+ * kept so the budget can be sized, see getStats.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class TileCache {
+
+	static final int WAYS = 4;
+
+	private static final int EMPTY = -1;
+
+	//bytes per tile besides its pixels, the key and the last use
+	private static final int SLOT_OVERHEAD_BYTES = (3 * Integer.BYTES) + Long.BYTES;
+
+	private final CompressedVideo video;
+	private final int tileLength;
+	private final int numOfSets;
+
+	/**
+	 * Key and last use of each slot, the slots of set s are s * WAYS to s * WAYS + WAYS - 1
+	 */
+	private final int[] frameNums;
+	private final int[] blockNums;
+	private final int[] quants;
+	private final long[] lastUsed;
+
+	/**
+	 * Tile of slot i starts at i * tileLength, pixel (x, y) is at y * dctBlockSize + x
+	 */
+	private final int[] tiles;
+
+	private long useCount;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param video parent CompressedVideo
+	 * @param byteBudget memory for tiles, rounded down to a whole number of sets, at least one set
+	 */
+	TileCache(CompressedVideo video, long byteBudget) {
+		this.video = video;
+		tileLength = video.dctBlockSize * video.dctBlockSize;
+		long slotBytes = ((long) tileLength * Integer.BYTES) + SLOT_OVERHEAD_BYTES;
+		long numOfSlots = Math.min(byteBudget / slotBytes, Integer.MAX_VALUE / tileLength);
+		numOfSets = (int) Math.max(1, numOfSlots / WAYS);
+
+		int capacity = numOfSets * WAYS;
+		frameNums = new int[capacity];
+		blockNums = new int[capacity];
+		quants = new int[capacity];
+		lastUsed = new long[capacity];
+		tiles = new int[capacity * tileLength];
+		Arrays.fill(frameNums, EMPTY);
+	}
+
+	/**
+	 * Copies a tile to an image if it is cached
+	 * @param frameNum frame number
+	 * @param dctBlockNum block number
+	 * @param quant quantization value
+	 * @param imagePixels pixels of a frameWidth by frameHeight TYPE_INT_RGB image, one row after the other
+	 * @return true if the tile was cached and copied
+	 */
+	synchronized boolean writeToImage(int frameNum, int dctBlockNum, int quant, int[] imagePixels) {
+		int slot = find(frameNum, dctBlockNum, quant);
+		if (slot == EMPTY) {
+			misses++;
+			return false;
+		}
+		hits++;
+		lastUsed[slot] = ++useCount;
+		DCTBlock.writeTile(video, dctBlockNum, tiles, slot * tileLength, imagePixels);
+		return true;
+	}
+
+	/**
+	 * Adds a tile, replacing the least recently used tile of its set
+	 * @param frameNum frame number
+	 * @param dctBlockNum block number
+	 * @param quant quantization value
+	 * @param tile packed RGB pixels, see DCTBlock.packTile
+	 */
+	synchronized void put(int frameNum, int dctBlockNum, int quant, int[] tile) {
+		int slot = find(frameNum, dctBlockNum, quant);
+		if (slot == EMPTY) {
+			int firstSlot = getSet(frameNum, dctBlockNum, quant) * WAYS;
+			slot = firstSlot;
+			for (int i = firstSlot + 1; i < firstSlot + WAYS; i++) {
+				if (lastUsed[i] < lastUsed[slot]) {
+					slot = i;
+				}
+			}
+			if (frameNums[slot] != EMPTY) {
+				evictions++;
+			}
+			frameNums[slot] = frameNum;
+			blockNums[slot] = dctBlockNum;
+			quants[slot] = quant;
+		}
+		lastUsed[slot] = ++useCount;
+		System.arraycopy(tile, 0, tiles, slot * tileLength, tileLength);
+	}
+
+	private int find(int frameNum, int dctBlockNum, int quant) {
+		int firstSlot = getSet(frameNum, dctBlockNum, quant) * WAYS;
+		for (int i = firstSlot; i < firstSlot + WAYS; i++) {
+			if (frameNums[i] == frameNum && blockNums[i] == dctBlockNum && quants[i] == quant) {
+				return i;
+			}
+		}
+		return EMPTY;
+	}
+
+	private int getSet(int frameNum, int dctBlockNum, int quant) {
+		int hash = (frameNum * 0x9E3779B1) + (dctBlockNum * 0x85EBCA77) + (quant * 0xC2B2AE3D);
+		hash ^= hash >>> 15;
+		return Integer.remainderUnsigned(hash, numOfSets);
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Counters and capacity, for sizing the budget
+	 */
+	synchronized String getStats() {
+		long lookups = Math.max(1, hits + misses);
+		long capacityBytes = (long) frameNums.length * ((tileLength * Integer.BYTES) + SLOT_OVERHEAD_BYTES);
+		return "Tile cache: " + frameNums.length + " tiles, " + (capacityBytes >> 20) + " MB, " +
+				hits + " hits (" + ((100 * hits) / lookups) + "%), " + misses + " misses, " + evictions + " evictions";
+	}
+
+}
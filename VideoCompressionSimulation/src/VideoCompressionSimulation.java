@@ -1,7 +1,7 @@
 import java.io.File;
 
 /**
- * Class used to read a video file in an .rgb format, divide each video frame
+ * Class used to read a video file in an .rgb or YUV format, divide each video frame
  * into background and foreground macro blocks, encode the data using DCT 
  * (Discrete Cosine Transform),and then use background and foreground 
  * compression parameters to play back the video in a manner that simulates 
@@ -22,10 +22,44 @@ public class VideoCompressionSimulation {
 	static final int SEARCH_PARAM = 16; //motion search range (in number of pixels) for MacroBlocks  
 	static final int GAZE_SIZE = 64;  //size of square in pixels used to represent gaze window if feature is turned on
 	
+	//memory map the input file instead of reading it into the heap, turn off with -Dvcs.mappedInput=false
+	static final boolean MAPPED_INPUT = Boolean.parseBoolean(System.getProperty("vcs.mappedInput", "true"));
+	
+	//Y channel implementation, FLOAT, FIXED_POINT, or VERIFY (fixed point checked against float), see RGBFileReader class
+	static final RGBFileReader.GrayConversion GRAY_CONVERSION = 
+			RGBFileReader.GrayConversion.valueOf(System.getProperty("vcs.grayConversion", "FIXED_POINT"));
+	
+	//number of worker threads, used for motion search and for reading the input file in parallel with -Dvcs.mappedInput=false
+	static final int NUM_THREADS = Integer.getInteger("vcs.threads", Runtime.getRuntime().availableProcessors());
+	
+	//memory budget in MB for finished frames, evicted frames are created again when played, defaults to a quarter of the heap,
+	//frames from standard input can not be created again, so the oldest of them are dropped instead
+	static final long FRAME_CACHE_BYTES = 
+			Long.getLong("vcs.frameCacheMB", Runtime.getRuntime().maxMemory() >> 22) << 20;
+	
+	//memory budget in MB for reconstructed DCT blocks, so looped playback only re-renders blocks whose quantization changed, 
+	//defaults to an eighth of the heap, 0 for off
+	static final long TILE_CACHE_BYTES = 
+			Long.getLong("vcs.tileCacheMB", Runtime.getRuntime().maxMemory() >> 23) << 20;
+	
+	//DCT coefficient representation, FLOAT or FIXED_POINT (bit exact integer transform), see DCTBlock class
+	static final DCTBlock.CoefficientFormat COEFFICIENT_FORMAT = 
+			DCTBlock.CoefficientFormat.valueOf(System.getProperty("vcs.coefficients", "FLOAT"));
+	
+	//DCT and IDCT implementation for FLOAT coefficients, REFERENCE, SEPARABLE, or FAST (8x8 blocks only), see DctEngine interface
+	static final DctEngine.Kind DCT_ENGINE = DctEngine.Kind.valueOf(System.getProperty("vcs.dctEngine", "FAST"));
+	
+	//check the DCT engine against the REFERENCE engine on one block in this many, 0 for off
+	static final int DCT_CHECK_INTERVAL = Integer.getInteger("vcs.dctCheckInterval", 0);
+	
+	//motion search for MacroBlocks, LOGARITHMIC, FULL, SMALL_DIAMOND, LARGE_DIAMOND, HEXAGON, or PREDICTIVE, see MotionSearch interface
+	static final MotionSearch.Kind MOTION_SEARCH = MotionSearch.Kind.valueOf(System.getProperty("vcs.motionSearch", "LOGARITHMIC"));
+	
 
 	/**
 	 * Runs video compression simulation
-	 * @param args[0] filename to be read, must be .rgb format
+	 * @param args[0] filename to be read, must be .rgb, .yuv (YUV 4:2:0), or .y4m (YUV4MPEG2 4:2:0) format,
+	 * or - to read .rgb frames from standard input until it ends
 	 * @param args[1] foreground quantization parameter, must be integer >= 1
 	 * @param args[2] background quantization parameter, must be integer >= 1
 	 * @param args[3] gaze control 1 for on, or 0 for off 
@@ -45,7 +79,16 @@ public class VideoCompressionSimulation {
 				GAZE_SIZE,
 				foreQuant, 
 				backQuant,				
-				gazeControlOn);
+				gazeControlOn,
+				MAPPED_INPUT,
+				GRAY_CONVERSION,
+				NUM_THREADS,
+				FRAME_CACHE_BYTES,
+				TILE_CACHE_BYTES,
+				COEFFICIENT_FORMAT,
+				DCT_ENGINE,
+				DCT_CHECK_INTERVAL,
+				MOTION_SEARCH);
 		try {
 			video.playVideo(); //plays video compression simulation
 		} catch (InterruptedException e) {
@@ -1,8 +1,10 @@
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
 /**
  * Class that represents one video frame for a CompressedVideo class. Contains
- * arrays of Macro Blocks as well as DCT Blocks for this frame. Has important
+ * arrays of Macro Blocks as well as the DCT coefficients of every DCT Block
+ * for this frame, in one flat array. Has important
  * internal method assignLayers that chooses if a MacroBlock should be foreground
  * or background based on motion vectors and the SAD error related to the motion 
  * vector calculation
@@ -12,8 +14,15 @@ import java.awt.image.BufferedImage;
  */
 class VideoFrame {
 
+	final int frameNum;
 	MacroBlock[][] macroBlocks;
-	DCTBlock[] dctBlocks;
+	
+	/**
+	 * DCT coefficients of every DCTBlock in the frame, FLOAT or FIXED_POINT depending on the video's
+	 * coefficient format, the other one is null. See DCTBlock.createDCTBlocksForFrame for the layout
+	 */
+	float[] dctCoefficients;
+	short[] fixedCoefficients;
 		
 	//************************************************************//
 	//      INITIAL FOREGROUND/BACKGROUND ASSIGNEMENT VALUES      //
@@ -75,29 +84,67 @@ class VideoFrame {
 	
 	
 	/**
-	 * Static method to create video frames. Creates MacroBlocks, assigns them
-	 * to a layer, and creates DCTBlocks
-	 * @param parentVid the parent CompressedVideo
-	 * @return an array of VideoFrames
+	 * Creates an empty video frame, MacroBlocks and DCTBlocks are filled in
+	 * by analyze
+	 * @param frameNum frame number
 	 */
-	static VideoFrame[] createFrames(CompressedVideo parentVid) {
-		
-		VideoFrame[] videoFrames = new VideoFrame[parentVid.numOfFrames];
-		
-		System.out.println("Frames to load: " + parentVid.numOfFrames);
-		
-		//for each frame create macroBlocks and DCTs
-		for (int frameNum = 0; frameNum < parentVid.numOfFrames; frameNum++) {
-			videoFrames[frameNum] = new VideoFrame();
-			videoFrames[frameNum].macroBlocks = MacroBlock.createMacroBlocksForFrame(parentVid, frameNum);
-			videoFrames[frameNum].assignLayers(parentVid);
-			videoFrames[frameNum].dctBlocks = DCTBlock.createDCTBlocksForFrame(parentVid, frameNum);
-			System.out.println("Loaded frame " + (frameNum+1) + "/" + parentVid.numOfFrames);
+	VideoFrame(int frameNum) {
+		this.frameNum = frameNum;
+	}
+
+	/**
+	 * Creates a finished video frame in one go, used by the FrameCache class to
+	 * create a frame again after it has been evicted
+	 * @param video parent CompressedVideo
+	 * @param frameNum frame number
+	 * @return video frame with MacroBlocks, layers, and DCTBlocks
+	 */
+	static VideoFrame createFrame(CompressedVideo video, int frameNum) {
+		VideoFrame frame = new VideoFrame(frameNum);
+		frame.analyze(video);
+		return frame;
+	}
+
+	/**
+	 * Creates the MacroBlocks unless they already are, assigns them to a layer, and creates the
+	 * DCTBlocks. Only reads the FrameStore's bytes of this frame and the one before, so frames can be
+	 * analyzed in any order and at the same time once their MacroBlocks are created, see FramePipeline
+	 * @param video parent CompressedVideo
+	 */
+	void analyze(CompressedVideo video) {
+		if (macroBlocks == null) {
+			macroBlocks = MacroBlock.createMacroBlocksForFrame(video, frameNum);
 		}
-		
-		
-	
-		return videoFrames;
+		assignLayers(video);
+		DCTBlock.createDCTBlocksForFrame(video, this);
+	}
+
+	/**
+	 * Approximate heap size of a finished frame, assuming 16 byte array headers and
+	 * 4 byte (compressed) references, see FrameCache class
+	 * @param video parent CompressedVideo
+	 * @return size in bytes
+	 */
+	long getSizeInBytes(CompressedVideo video) {
+		int macroBlocksX = video.frameWidthPadded / video.macroBlockSize;
+		int macroBlocksY = video.frameHeightPadded / video.macroBlockSize;
+		long macroBlockBytes = 16 + (4L * macroBlocksX) + (macroBlocksX * (16 + (4L * macroBlocksY))) +
+				(24L * video.numOfMacroBlocksPerFrame);
+		int coefficientBytes = (video.coefficientFormat == DCTBlock.CoefficientFormat.FIXED_POINT) ? 2 : 4;
+		long dctBytes = 16 + ((long) DCTBlock.getNumOfDCTBlocks(video) * DCTBlock.getBlockLength(video) * coefficientBytes);
+
+		return 24 + macroBlockBytes + dctBytes;
+	}
+
+	/**
+	 * Describes the heap used by the DCT coefficients of one frame
+	 * @param video parent CompressedVideo
+	 * @return one line report
+	 */
+	static String getMemoryReport(CompressedVideo video) {
+		int coefficientBytes = (video.coefficientFormat == DCTBlock.CoefficientFormat.FIXED_POINT) ? 2 : 4;
+		long flatBytes = 16 + ((long) DCTBlock.getNumOfDCTBlocks(video) * DCTBlock.getBlockLength(video) * coefficientBytes);
+		return "DCT coefficients per frame: " + (flatBytes >> 10) + " KB in 1 array";
 	}
 
 	/**
@@ -106,51 +153,66 @@ class VideoFrame {
 	 * DCT coefficients by the appropriate quantization value (or not if in gaze area), 
 	 * rounds the value to the nearest integer, multiply by the quantization value again,
 	 * take the inverse discrete cosine transform of the DCT coefficients, write those values
-	 * to a buffered image, and return that image.
+	 * to a buffered image, and return that image. Nothing is allocated once the calling
+	 * thread has rendered its first frame, the temporary DCT block comes from the video's
+	 * renderBlocks and the image is passed in. Blocks that were already rendered with the same
+	 * quantization value are copied from the video's tileCache instead, and blocks in the gaze area
+	 * are copied from the video's frameStore.
 	 * @param video parent CompressedVideo
 	 * @param gazeX x coordinate of mouse pointer, normalized for JFrame window
 	 * @param gazeY y coordinate of mouse pointer, normalized for JFrame window
 	 * @param gazeOn is the gaze control feature on
+	 * @param curFrameImage image to draw into, frameWidth by frameHeight and TYPE_INT_RGB
 	 * @return current frame's image
 	 */
-	BufferedImage getFrameImage(CompressedVideo video, int gazeX, int gazeY, boolean gazeOn) {
+	BufferedImage getFrameImage(CompressedVideo video, int gazeX, int gazeY, boolean gazeOn, BufferedImage curFrameImage) {
 	
-
-		BufferedImage curFrameImage = new BufferedImage(video.frameWidth, video.frameHeight, BufferedImage.TYPE_INT_RGB);
+		int[] imagePixels = ((DataBufferInt) curFrameImage.getRaster().getDataBuffer()).getData();
+		// DCT block used to hold temporary results, reused for every block
+		DCTBlock tempResultDCTBlock = video.renderBlocks.get(); 
 			
 		// loop through each DCTBlock in the frame
-		for (int dctBlockNum = 0; dctBlockNum < dctBlocks.length; dctBlockNum++) {
-			
-			// current DCT block
-			DCTBlock curDCTBlock = dctBlocks[dctBlockNum];
-			// temporary DCT block used to hold temporary result
-			DCTBlock tempResultDCTBlock = new DCTBlock(video); 
+		for (int dctBlockNum = 0; dctBlockNum < DCTBlock.getNumOfDCTBlocks(video); dctBlockNum++) {
 			
+			// get quantization value
+			int quant = getQuantizationValue(video, dctBlockNum, gazeX, gazeY);
 			
+			// a quantization value of 1 leaves the block as it was, so copy it from the source if it is still there
+			if (quant == 1 && video.frameStore.hasFrame(frameNum)) {
+				DCTBlock.writeSourceToImage(video, frameNum, dctBlockNum, imagePixels);
+				video.idctStats.sourceCopies.increment();
+				continue;
+			}
 			
-			// get quantization value
-			int quant = getQuantizationValue(video, curDCTBlock, dctBlockNum, gazeX, gazeY);
+			// copy the block if it was already rendered with this quantization value
+			if (video.tileCache != null && video.tileCache.writeToImage(frameNum, dctBlockNum, quant, imagePixels)) {
+				continue;
+			}
 			
 			// divide coefficients by quant, round, and then multiply by quant, emulates compression
-			tempResultDCTBlock.quantizeCoefficients(video, quant, curDCTBlock);
+			tempResultDCTBlock.quantizeCoefficients(video, quant, this, dctBlockNum);
 			
 
-			// transform DCT coefficients back to pixel values using IDCT
+			// transform DCT coefficients back to pixel values using IDCT, blocks that need the
+			// whole IDCT are batched
 			tempResultDCTBlock.dctToIDCT(video);
 		
 		
-			// write all rgb vals of the DCT block to image
-			tempResultDCTBlock.writeToImage(video, curDCTBlock, dctBlockNum, curFrameImage);
+			// write all rgb vals of the batched DCT blocks to image, and keep them for the next time
+			if (tempResultDCTBlock.isBatchFull()) {
+				tempResultDCTBlock.writeBatchToImage(video, frameNum, imagePixels);
+			}
 			
 		}
+		tempResultDCTBlock.writeBatchToImage(video, frameNum, imagePixels);
 	
 		return curFrameImage;
 	}
 
 
-	private int getQuantizationValue(CompressedVideo video, DCTBlock curDCTBlock, int dctBlockNum, int gazeX, int gazeY) {
-		int dctBlockX = curDCTBlock.getX(video, dctBlockNum);
-		int dctBlockY = curDCTBlock.getY(video, dctBlockNum);
+	private int getQuantizationValue(CompressedVideo video, int dctBlockNum, int gazeX, int gazeY) {
+		int dctBlockX = DCTBlock.getX(video, dctBlockNum);
+		int dctBlockY = DCTBlock.getY(video, dctBlockNum);
 		int quant;
 		if ((dctBlockX <= gazeX + (video.gazeSize / 2)) && (dctBlockX >= gazeX - (video.gazeSize / 2))
 			&& (dctBlockY <= gazeY + (video.gazeSize / 2)) && (dctBlockY >= gazeY - (video.gazeSize / 2))) {
@@ -165,7 +227,7 @@ class VideoFrame {
 		return quant;
 	}
 
-	private void assignLayers(CompressedVideo parentVid) {
+	void assignLayers(CompressedVideo parentVid) {
 		
 
 		
@@ -1,4 +1,5 @@
 import java.awt.Button;
+import java.awt.GraphicsEnvironment;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.MouseInfo;
@@ -23,18 +24,30 @@ class VideoPlayer implements ActionListener{
 
 	private JFrame frame;
 	private JLabel imageLabel;
-	private BufferedImage curFrameImage;
 	private JLabel videoHeaderText;
 	private CompressedVideo video;
 	
 	/**
-	 * Creates a VideoPlayer using a CompressedVideo as input
+	 * Two images that frames are drawn into in turn, so a frame is never drawn into the image
+	 * that is on screen, and no image is created per frame
+	 */
+	private final BufferedImage[] frameImages = new BufferedImage[2];
+	private final ImageIcon[] frameIcons = new ImageIcon[2];
+	private int curImageNum;
+	
+	/**
+	 * Creates a VideoPlayer using a CompressedVideo as input, the window is only created when
+	 * there is a display, so the video can be created headless, for instance by the tests
 	 * @param video parent video
 	 */
 	VideoPlayer(CompressedVideo video) {
 		this.video = video;
-		curFrameImage = new BufferedImage(video.frameWidth, video.frameHeight, BufferedImage.TYPE_INT_RGB);
-		createFrame();		
+		for (int i = 0; i < frameImages.length; i++) {
+			frameImages[i] = new BufferedImage(video.frameWidth, video.frameHeight, BufferedImage.TYPE_INT_RGB);
+		}
+		if (!GraphicsEnvironment.isHeadless()) {
+			createFrame();
+		}
 	}
 
 	/**
@@ -48,12 +61,13 @@ class VideoPlayer implements ActionListener{
 	/**
 	 * Updates JFrame curFrameImage repetitively to play video as a sequence
 	 * of images.
+	 * @param videoFrame current frame of the video
 	 * @param frameNum current frame number of the video
 	 * @param gazeX the x value of the mouse pointer, normalized for the Jframe window,
 	 * @param gazeY the y value of the mouse pointer, normalized for the Jframe window.
 	 * @param gazeOn true if mouse pointer is used to simulate gaze.
 	 */
-	void updateFrameImg(int frameNum, boolean gazeOn) {
+	void updateFrameImg(VideoFrame videoFrame, int frameNum, boolean gazeOn) {
 		Point curMousePoint; 
 		int mouseX; 
 		int mouseY;
@@ -68,8 +82,9 @@ class VideoPlayer implements ActionListener{
 			mouseY = -video.frameHeightPadded;
 		}
 
-		curFrameImage = video.videoFrames[frameNum].getFrameImage(video, mouseX, mouseY, gazeOn);
-		imageLabel.setIcon(new ImageIcon(curFrameImage)); 
+		curImageNum = 1 - curImageNum;
+		videoFrame.getFrameImage(video, mouseX, mouseY, gazeOn, frameImages[curImageNum]);
+		imageLabel.setIcon(frameIcons[curImageNum]); 
 		updateVideoHeaderText(frameNum);
 	}
 	
@@ -82,7 +97,10 @@ class VideoPlayer implements ActionListener{
 		String result = " ";
 		videoHeaderText = new JLabel(result);
 		videoHeaderText.setHorizontalAlignment(SwingConstants.CENTER);
-		imageLabel = new JLabel(new ImageIcon(curFrameImage));
+		for (int i = 0; i < frameIcons.length; i++) {
+			frameIcons[i] = new ImageIcon(frameImages[i]);
+		}
+		imageLabel = new JLabel(frameIcons[curImageNum]);
 		
 		// add video header text
 		GridBagConstraints c = new GridBagConstraints();
@@ -110,11 +128,18 @@ class VideoPlayer implements ActionListener{
 		frame.toFront();
 	}
 
+	private String getNumOfFramesText() {
+		if (video.numOfFrames != CompressedVideo.UNKNOWN_NUM_OF_FRAMES) {
+			return Integer.toString(video.numOfFrames);
+		}
+		return video.pipeline.getNumOfFramesLoaded() + "+";
+	}
+
 	private void updateVideoHeaderText(int frameNum) {
 		videoHeaderText.setText("Foreground Quantization Parameter: " + video.foregroundQuant + 
 				"  Background Quantization Parameter: " + video.backgroundQuant + 
 				"  Gaze On: " + video.gazeOn + 
-				"  Current Frame: " + frameNum + "/" + video.numOfFrames);
+				"  Current Frame: " + frameNum + "/" + getNumOfFramesText());
 	}
 	
 }
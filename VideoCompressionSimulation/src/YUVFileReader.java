@@ -0,0 +1,260 @@
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * Class used to read a video file in a raw planar YUV 4:2:0 (.yuv) or
+ * YUV4MPEG2 (.y4m) format, and outputs it one frame at a time into a byte
+ * array format. The Y channel from the file is used directly as the grayscale
+ * channel for motion search, after the same blur RGBFileReader applies, so no
+ * grayscale channel has to be computed. The U and V channels are kept at
+ * quarter resolution, see YUVFrameStore.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class YUVFileReader {
+
+	static final String Y4M_SIGNATURE = "YUV4MPEG2";
+	static final String Y4M_FRAME_HEADER = "FRAME";
+
+	/**
+	 * Colorspace tags of 4:2:0 chroma with 1 byte per sample, the other 4:2:0 tags such as 420p10
+	 * have 2 bytes per sample
+	 */
+	private static final String[] Y4M_COLORSPACES = {"420", "420jpeg", "420paldv", "420mpeg2"};
+	private static final String Y4M_COLOR_RANGE = "COLORRANGE";
+
+	private final CompressedVideo video;
+	private final RGBFileReader rgbReader;
+
+	YUVFileReader(CompressedVideo video) {
+		this.video = video;
+		rgbReader = new RGBFileReader(video);
+	}
+
+	/**
+	 * Padded width of the U and V channels
+	 */
+	static int getChromaWidthPadded(CompressedVideo video) {
+		return video.frameWidthPadded / 2;
+	}
+
+	/**
+	 * Padded height of the U and V channels
+	 */
+	static int getChromaHeightPadded(CompressedVideo video) {
+		return video.frameHeightPadded / 2;
+	}
+
+	/**
+	 * Number of bytes of one frame in the file, not counting a Y4M frame header
+	 */
+	static long getFrameSize(CompressedVideo video) {
+		long chromaSize = (long) ((video.frameWidth + 1) / 2) * ((video.frameHeight + 1) / 2);
+		return ((long) video.frameWidth * video.frameHeight) + (2 * chromaSize);
+	}
+
+	/**
+	 * Reads the stream header of a .y4m file. Only 8 bit 4:2:0 chroma is supported.
+	 * @param file input file
+	 * @return parsed header
+	 */
+	static Y4MHeader readY4MHeader(File file) throws IOException {
+		try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+			String line = readLine(inputStream);
+			String[] params = line.split(" ");
+			if (!params[0].equals(Y4M_SIGNATURE)) {
+				throw new IOException("Not a YUV4MPEG2 file: " + file);
+			}
+			int width = -1;
+			int height = -1;
+			boolean fullRange = false;
+			for (int i = 1; i < params.length; i++) {
+				if (params[i].isEmpty()) {
+					continue;
+				}
+				String value = params[i].substring(1);
+				switch (params[i].charAt(0)) {
+				case 'W':
+					width = Integer.parseInt(value);
+					break;
+				case 'H':
+					height = Integer.parseInt(value);
+					break;
+				case 'C':
+					if (!isSupportedColorspace(value)) {
+						throw new IOException("Unsupported YUV4MPEG2 colorspace: " + value);
+					}
+					break;
+				case 'X':
+					int equals = value.indexOf('=');
+					if (equals >= 0 && value.substring(0, equals).equalsIgnoreCase(Y4M_COLOR_RANGE)) {
+						fullRange = value.substring(equals + 1).equalsIgnoreCase("FULL");
+					}
+					break;
+				default:
+					break;
+				}
+			}
+			if (width <= 0 || height <= 0) {
+				throw new IOException("YUV4MPEG2 header is missing the frame size: " + line);
+			}
+			return new Y4MHeader(width, height, fullRange, line.length() + 1);
+		}
+	}
+
+	private static boolean isSupportedColorspace(String colorspace) {
+		for (String supported : Y4M_COLORSPACES) {
+			if (supported.equals(colorspace)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Counts the whole frames of a .y4m file by walking its frame headers, which can have
+	 * parameters of their own, so they are not all the same length. A frame cut short by the end
+	 * of the file is not counted
+	 * @param file input file
+	 * @param y4mHeader stream header of the file
+	 * @param frameSize number of bytes of one frame, see getFrameSize
+	 * @return number of frames
+	 */
+	static int countY4MFrames(File file, Y4MHeader y4mHeader, long frameSize) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			InputStream inputStream = Channels.newInputStream(channel);
+			long fileSize = channel.size();
+			long position = y4mHeader.length;
+			int numOfFrames = 0;
+			while (position < fileSize) {
+				channel.position(position);
+				String line;
+				try {
+					line = readLine(inputStream);
+				} catch (EOFException e) {
+					break;
+				}
+				if (!line.startsWith(Y4M_FRAME_HEADER)) {
+					throw new IOException("Expected YUV4MPEG2 frame header, found: " + line);
+				}
+				position += line.length() + 1 + frameSize;
+				if (position > fileSize) {
+					break;
+				}
+				numOfFrames++;
+			}
+			return numOfFrames;
+		}
+	}
+
+	/**
+	 * Skips the stream header at the start of a .y4m file, see readY4MHeader
+	 * @param inputStream stream positioned at the start of the file
+	 */
+	void skipY4MStreamHeader(InputStream inputStream) throws IOException {
+		readLine(inputStream);
+	}
+
+	/**
+	 * Skips the header in front of each frame of a .y4m file
+	 * @param inputStream stream positioned at the frame header
+	 */
+	void skipY4MFrameHeader(InputStream inputStream) throws IOException {
+		String line = readLine(inputStream);
+		if (!line.startsWith(Y4M_FRAME_HEADER)) {
+			throw new IOException("Expected YUV4MPEG2 frame header, found: " + line);
+		}
+	}
+
+	/**
+	 * Reads one frame into the YUVFrameStore layout: padded Y channel, room for the padded
+	 * grayscale channel, then the padded U and V channels at quarter resolution
+	 * @param inputStream stream positioned at the first Y byte of the frame
+	 * @return padded frame
+	 */
+	byte[] readOneFrame(InputStream inputStream) throws IOException {
+		int chromaWidth = (video.frameWidth + 1) / 2;
+		int chromaHeight = (video.frameHeight + 1) / 2;
+		int chromaWidthPadded = getChromaWidthPadded(video);
+		int chromaHeightPadded = getChromaHeightPadded(video);
+		int chromaSizePadded = chromaWidthPadded * chromaHeightPadded;
+		byte[] bytes = new byte[(video.frameSizePadded * 2) + (chromaSizePadded * 2)];
+
+		//Y channel
+		readFully(inputStream, bytes, 0, video.frameWidth * video.frameHeight);
+		RGBFileReader.spreadRows(bytes, 0, video.frameWidth, video.frameHeight, video.frameWidthPadded);
+		RGBFileReader.padChannel(bytes, 0, video.frameWidth, video.frameHeight,
+				video.frameWidthPadded, video.frameHeightPadded);
+
+		//U and V channels
+		for (int offset = video.frameSizePadded * 2; offset < bytes.length; offset += chromaSizePadded) {
+			readFully(inputStream, bytes, offset, chromaWidth * chromaHeight);
+			RGBFileReader.spreadRows(bytes, offset, chromaWidth, chromaHeight, chromaWidthPadded);
+			RGBFileReader.padChannel(bytes, offset, chromaWidth, chromaHeight, chromaWidthPadded, chromaHeightPadded);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Copies the Y channel of a frame returned by readOneFrame to its grayscale channel and blurs it
+	 * @param bytes padded frame
+	 */
+	void writeGrayFrame(byte[] bytes) {
+		System.arraycopy(bytes, 0, bytes, video.frameSizePadded, video.frameSizePadded);
+		rgbReader.blurOneGrayFrame(bytes, video.frameSizePadded);
+	}
+
+	private static void readFully(InputStream inputStream, byte[] bytes, int offset, int length) throws IOException {
+		int numRead = 0;
+		while (numRead < length) {
+			int curRead = inputStream.read(bytes, offset + numRead, length - numRead);
+			if (curRead < 0) {
+				throw new EOFException("Input ended in the middle of a frame");
+			}
+			numRead += curRead;
+		}
+	}
+
+	/**
+	 * Reads one header line, without the ending new line
+	 */
+	private static String readLine(InputStream inputStream) throws IOException {
+		StringBuilder line = new StringBuilder();
+		int curByte = inputStream.read();
+		while (curByte != '\n') {
+			if (curByte < 0) {
+				throw new EOFException("Input ended in the middle of a YUV4MPEG2 header");
+			}
+			line.append((char) curByte);
+			curByte = inputStream.read();
+		}
+		return line.toString();
+	}
+
+	/**
+	 * Parameters from the stream header of a .y4m file
+	 */
+	static class Y4MHeader {
+		final int width;
+		final int height;
+		final boolean fullRange;
+		final int length; //number of bytes including the ending new line
+
+		Y4MHeader(int width, int height, boolean fullRange, int length) {
+			this.width = width;
+			this.height = height;
+			this.fullRange = fullRange;
+			this.length = length;
+		}
+	}
+
+}
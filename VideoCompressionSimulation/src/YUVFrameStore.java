@@ -0,0 +1,163 @@
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * FrameStore for YUV 4:2:0 input read by YUVFileReader. Each frame is its own
+ * byte array holding the padded Y channel, the padded, blurred grayscale
+ * channel, and the padded U and V channels at quarter resolution, which is
+ * 2.5 channels worth of bytes instead of 4 for RGBY. The r, g, and b bytes the
+ * DCTBlock class asks for are converted from YUV (ITU-R BT.601) as they are
+ * read.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class YUVFrameStore implements FrameStore {
+
+	private final CompressedVideo video;
+	private final YUVFileReader reader;
+	private final File file;
+	private final YUVFileReader.Y4MHeader y4mHeader; //null for .yuv
+	private final boolean fullRange;
+	private final int chromaWidthPadded;
+	private final int uOffset;
+	private final int vOffset;
+	private InputStream inputStream;
+
+	/**
+	 * Byte arrays that are read from the input file, one per frame
+	 */
+	private final byte[][] yuvInput;
+
+	/**
+	 * @param video parent video
+	 * @param file input file
+	 * @param y4mHeader stream header for .y4m files, null for raw .yuv files which are
+	 * taken to be limited range
+	 */
+	YUVFrameStore(CompressedVideo video, File file, YUVFileReader.Y4MHeader y4mHeader) {
+		this.video = video;
+		this.file = file;
+		this.y4mHeader = y4mHeader;
+		fullRange = (y4mHeader != null) && y4mHeader.fullRange;
+		reader = new YUVFileReader(video);
+		chromaWidthPadded = YUVFileReader.getChromaWidthPadded(video);
+		uOffset = video.frameSizePadded * 2;
+		vOffset = uOffset + (chromaWidthPadded * YUVFileReader.getChromaHeightPadded(video));
+		yuvInput = new byte[video.numOfFrames][];
+	}
+
+	@Override
+	public byte getOneByte(int frameNum, CompressedVideo.Channel channel, int row, int column) {
+		byte[] frameBytes = yuvInput[frameNum];
+		if (channel == CompressedVideo.Channel.GRAY) {
+			return frameBytes[video.frameSizePadded + (row * video.frameWidthPadded) + column];
+		}
+		int chromaIndex = ((row / 2) * chromaWidthPadded) + (column / 2);
+		int y = frameBytes[(row * video.frameWidthPadded) + column] & 0xff;
+		int u = (frameBytes[uOffset + chromaIndex] & 0xff) - 128;
+		int v = (frameBytes[vOffset + chromaIndex] & 0xff) - 128;
+		int value;
+
+		//8 bit fixed point BT.601 coefficients
+		if (fullRange) {
+			y <<= 8;
+			switch (channel) {
+			case RED:
+				value = y + (359 * v);
+				break;
+			case GREEN:
+				value = y - (88 * u) - (183 * v);
+				break;
+			default:
+				value = y + (454 * u);
+				break;
+			}
+		}
+		else {
+			y = 298 * (y - 16);
+			switch (channel) {
+			case RED:
+				value = y + (409 * v);
+				break;
+			case GREEN:
+				value = y - (100 * u) - (208 * v);
+				break;
+			default:
+				value = y + (516 * u);
+				break;
+			}
+		}
+		value = (value + 128) >> 8;
+		if (value > 255) value = 255;
+		if (value < 0) value = 0;
+		return (byte) value;
+	}
+
+	@Override
+	public byte[] getGrayFrame(int frameNum) {
+		return yuvInput[frameNum];
+	}
+
+	@Override
+	public int getGrayOffset() {
+		return video.frameSizePadded;
+	}
+
+	/**
+	 * Converts each pixel from YUV like getOneByte does
+	 */
+	@Override
+	public void getRGB(int frameNum, int row, int column, int[] rgb, int offset, int length) {
+		for (int i = 0; i < length; i++) {
+			int r = getOneByte(frameNum, CompressedVideo.Channel.RED, row, column + i) & 0xff;
+			int g = getOneByte(frameNum, CompressedVideo.Channel.GREEN, row, column + i) & 0xff;
+			int b = getOneByte(frameNum, CompressedVideo.Channel.BLUE, row, column + i) & 0xff;
+			rgb[offset + i] = (r << 16) | (g << 8) | b;
+		}
+	}
+
+	@Override
+	public boolean readFrame(int frameNum) throws IOException {
+		if (frameNum >= video.numOfFrames) {
+			return false;
+		}
+		if (inputStream == null) {
+			System.out.println("Loading file...");
+			inputStream = new BufferedInputStream(new FileInputStream(file));
+			if (y4mHeader != null) {
+				reader.skipY4MStreamHeader(inputStream);
+			}
+		}
+		try {
+			if (y4mHeader != null) {
+				reader.skipY4MFrameHeader(inputStream);
+			}
+			yuvInput[frameNum] = reader.readOneFrame(inputStream);
+		} finally {
+			if (frameNum == video.numOfFrames - 1) {
+				inputStream.close();
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public void writeGrayFrame(int frameNum) {
+		reader.writeGrayFrame(yuvInput[frameNum]);
+	}
+
+	@Override
+	public void releaseFrame(int frameNum) {
+	}
+
+	@Override
+	public boolean hasFrame(int frameNum) {
+		return frameNum < video.numOfFrames;
+	}
+
+}
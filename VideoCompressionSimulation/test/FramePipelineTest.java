@@ -0,0 +1,79 @@
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Tests that the FramePipeline publishes the same frames, MacroBlocks,
+ * layers, and DCT coefficients on one thread as on several, where frames
+ * are analyzed out of order and finish in any order.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+public class FramePipelineTest {
+
+	private static final int WIDTH = 160;
+	private static final int HEIGHT = 96;
+	private static final int NUM_THREADS = 4;
+
+	//more than the pipeline holds in flight with NUM_THREADS threads, see FramePipeline.getMaxFramesInFlight
+	private static final int NUM_OF_FRAMES = 12;
+
+	private static File input;
+
+	@BeforeClass
+	public static void writeInput() throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		input = SyntheticVideo.write(WIDTH, HEIGHT, NUM_OF_FRAMES);
+	}
+
+	@Test
+	public void threadsPublishSameFrames() throws Exception {
+		assertSameFrames(MotionSearch.Kind.LOGARITHMIC);
+	}
+
+	@Test
+	public void threadsPublishSameFramesWithPredictiveSearch() throws Exception {
+		assertSameFrames(MotionSearch.Kind.PREDICTIVE);
+	}
+
+	private static void assertSameFrames(MotionSearch.Kind motionSearchKind) throws Exception {
+		CompressedVideo oneThread = SyntheticVideo.open(input, WIDTH, HEIGHT, 1, 0, motionSearchKind);
+		CompressedVideo manyThreads = SyntheticVideo.open(input, WIDTH, HEIGHT, NUM_THREADS, 0, motionSearchKind);
+		for (int frameNum = 0; frameNum < NUM_OF_FRAMES; frameNum++) {
+			VideoFrame expected = oneThread.getVideoFrame(frameNum);
+			VideoFrame actual = manyThreads.getVideoFrame(frameNum);
+			assertNotNull(expected);
+			assertNotNull(actual);
+			assertSameFrame(motionSearchKind + " frame " + frameNum, expected, actual);
+		}
+		assertNull(oneThread.getVideoFrame(NUM_OF_FRAMES));
+		assertNull(manyThreads.getVideoFrame(NUM_OF_FRAMES));
+	}
+
+	private static void assertSameFrame(String message, VideoFrame expected, VideoFrame actual) {
+		assertEquals(message, expected.frameNum, actual.frameNum);
+		assertEquals(message, expected.macroBlocks.length, actual.macroBlocks.length);
+		for (int xIndex = 0; xIndex < expected.macroBlocks.length; xIndex++) {
+			assertEquals(message, expected.macroBlocks[xIndex].length, actual.macroBlocks[xIndex].length);
+			for (int yIndex = 0; yIndex < expected.macroBlocks[xIndex].length; yIndex++) {
+				MacroBlock expectedBlock = expected.macroBlocks[xIndex][yIndex];
+				MacroBlock actualBlock = actual.macroBlocks[xIndex][yIndex];
+				String block = message + " block " + xIndex + "," + yIndex;
+				assertEquals(block, expectedBlock.xMotionVector, actualBlock.xMotionVector);
+				assertEquals(block, expectedBlock.yMotionVector, actualBlock.yMotionVector);
+				assertEquals(block, expectedBlock.errorSAD, actualBlock.errorSAD);
+				assertEquals(block, expectedBlock.foreground, actualBlock.foreground);
+			}
+		}
+		assertArrayEquals(message, expected.dctCoefficients, actual.dctCoefficients, 0f);
+	}
+
+}
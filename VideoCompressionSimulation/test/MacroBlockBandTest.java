@@ -0,0 +1,74 @@
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Tests that MacroBlock.createMacroBlocksForFrame finds the same motion
+ * vectors and SADs whether its bands of rows are searched on one thread or
+ * on several, including a frame with fewer macro block rows than threads.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+public class MacroBlockBandTest {
+
+	private static final int NUM_OF_FRAMES = 4;
+	private static final int NUM_THREADS = 4;
+
+	@BeforeClass
+	public static void setHeadless() {
+		System.setProperty("java.awt.headless", "true");
+	}
+
+	@Test
+	public void manyBandsMatchOneThread() throws Exception {
+		assertSameBlocks(320, 240, MotionSearch.Kind.LOGARITHMIC);
+	}
+
+	@Test
+	public void fewerRowsThanThreadsMatchOneThread() throws Exception {
+		assertSameBlocks(96, 32, MotionSearch.Kind.LOGARITHMIC);
+	}
+
+	@Test
+	public void predictiveSearchMatchesOneThread() throws Exception {
+		assertSameBlocks(320, 240, MotionSearch.Kind.PREDICTIVE);
+		assertSameBlocks(96, 32, MotionSearch.Kind.PREDICTIVE);
+	}
+
+	/**
+	 * Creates the MacroBlocks of every frame, in frame order, with 1 and with NUM_THREADS threads
+	 * and compares each block
+	 */
+	private static void assertSameBlocks(int width, int height, MotionSearch.Kind motionSearchKind) throws Exception {
+		File input = SyntheticVideo.write(width, height, NUM_OF_FRAMES);
+		CompressedVideo oneThread = SyntheticVideo.open(input, width, height, 1, 0, motionSearchKind);
+		CompressedVideo manyThreads = SyntheticVideo.open(input, width, height, NUM_THREADS, 0, motionSearchKind);
+		//let the pipelines finish so they do not search at the same time as the test
+		for (int frameNum = 0; frameNum < NUM_OF_FRAMES; frameNum++) {
+			oneThread.getVideoFrame(frameNum);
+			manyThreads.getVideoFrame(frameNum);
+		}
+
+		for (int frameNum = 0; frameNum < NUM_OF_FRAMES; frameNum++) {
+			MacroBlock[][] expected = MacroBlock.createMacroBlocksForFrame(oneThread, frameNum);
+			MacroBlock[][] actual = MacroBlock.createMacroBlocksForFrame(manyThreads, frameNum);
+			assertEquals(expected.length, actual.length);
+			for (int xIndex = 0; xIndex < expected.length; xIndex++) {
+				assertEquals(expected[xIndex].length, actual[xIndex].length);
+				for (int yIndex = 0; yIndex < expected[xIndex].length; yIndex++) {
+					String block = motionSearchKind + " " + width + "x" + height + " frame " + frameNum +
+							" block " + xIndex + "," + yIndex;
+					assertEquals(block, expected[xIndex][yIndex].xMotionVector, actual[xIndex][yIndex].xMotionVector);
+					assertEquals(block, expected[xIndex][yIndex].yMotionVector, actual[xIndex][yIndex].yMotionVector);
+					assertEquals(block, expected[xIndex][yIndex].errorSAD, actual[xIndex][yIndex].errorSAD);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+import static org.junit.Assert.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+
+/**
+ * Tests that VideoFrame.getFrameImage allocates nothing once the rendering
+ * thread has warmed up, with and without the TileCache.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+public class RenderAllocationTest {
+
+	private static final int WIDTH = 96;
+	private static final int HEIGHT = 64;
+	private static final int NUM_OF_FRAMES = 4;
+	private static final int WARM_UP_PASSES = 200;
+	private static final long TILE_CACHE_BYTES = 1L << 20;
+
+	//gaze positions of each pass, inside, on the edge of, and outside the frame
+	private static final int[][] GAZES = {{WIDTH / 2, HEIGHT / 2}, {0, 0}, {WIDTH - 1, HEIGHT / 3}, {-WIDTH, -HEIGHT}};
+
+	private static File input;
+
+	@BeforeClass
+	public static void writeInput() throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		input = SyntheticVideo.write(WIDTH, HEIGHT, NUM_OF_FRAMES);
+	}
+
+	@Test
+	public void renderingAllocatesNothingWithoutTileCache() throws Exception {
+		assertEquals(0, getBytesAllocatedByRendering(0));
+	}
+
+	@Test
+	public void renderingAllocatesNothingWithTileCache() throws Exception {
+		assertEquals(0, getBytesAllocatedByRendering(TILE_CACHE_BYTES));
+	}
+
+	/**
+	 * Renders every frame at every gaze position WARM_UP_PASSES times, then once more while
+	 * counting the bytes the thread allocates
+	 */
+	private static long getBytesAllocatedByRendering(long tileCacheBytes) throws Exception {
+		CompressedVideo video = SyntheticVideo.open(input, WIDTH, HEIGHT, 1, tileCacheBytes, MotionSearch.Kind.LOGARITHMIC);
+		VideoFrame[] frames = new VideoFrame[NUM_OF_FRAMES];
+		for (int frameNum = 0; frameNum < NUM_OF_FRAMES; frameNum++) {
+			frames[frameNum] = video.getVideoFrame(frameNum);
+		}
+		BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		for (int pass = 0; pass < WARM_UP_PASSES; pass++) {
+			render(video, frames, image);
+			threads.getThreadAllocatedBytes(threadId);
+		}
+		long before = threads.getThreadAllocatedBytes(threadId);
+		render(video, frames, image);
+		long after = threads.getThreadAllocatedBytes(threadId);
+		return after - before;
+	}
+
+	private static void render(CompressedVideo video, VideoFrame[] frames, BufferedImage image) {
+		for (VideoFrame frame : frames) {
+			for (int[] gaze : GAZES) {
+				frame.getFrameImage(video, gaze[0], gaze[1], true, image);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * Class that writes small .rgb videos for the tests and opens them as a
+ * CompressedVideo on a HeapFrameStore. Each frame is a textured background
+ * that moves further the further down and right it is, with a square moving
+ * the other way over it, so motion vectors, SADs, and layers differ between
+ * blocks and predictive searches depend on which neighbors they see.
+ * COPYRIGHT (C) 2017 John Leibowitz. All Rights Reserved.
+ * @author John Leibowitz
+ * @version 1.00
+ */
+class SyntheticVideo {
+
+	static final int FOREGROUND_QUANT = 10;
+	static final int BACKGROUND_QUANT = 50;
+	private static final int SQUARE_SIZE = 24;
+	private static final long FRAME_CACHE_BYTES = 64L << 20;
+
+	/**
+	 * Writes a video to a temporary file that is deleted on exit
+	 * @param width frame width
+	 * @param height frame height
+	 * @param numOfFrames number of frames
+	 * @return the .rgb file
+	 */
+	static File write(int width, int height, int numOfFrames) throws IOException {
+		File file = File.createTempFile("synthetic", ".rgb");
+		file.deleteOnExit();
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			for (int frameNum = 0; frameNum < numOfFrames; frameNum++) {
+				for (int channelNum = 0; channelNum < CompressedVideo.NUM_CHANNELS_RGB; channelNum++) {
+					for (int row = 0; row < height; row++) {
+						for (int col = 0; col < width; col++) {
+							out.write(getValue(frameNum, channelNum, row, col, width, height));
+						}
+					}
+				}
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Opens a video written by write
+	 * @param input the .rgb file
+	 * @param width frame width
+	 * @param height frame height
+	 * @param numThreads threads used to create frames
+	 * @param tileCacheBytes memory budget of the TileCache, 0 for none
+	 * @param motionSearchKind motion search
+	 * @return the video, its frames are created in the background
+	 */
+	static CompressedVideo open(File input, int width, int height, int numThreads, long tileCacheBytes,
+			MotionSearch.Kind motionSearchKind) {
+		return new CompressedVideo(input,
+				VideoCompressionSimulation.MACRO_BLOCK_SIZE,
+				VideoCompressionSimulation.DCT_BLOCK_SIZE,
+				height,
+				width,
+				VideoCompressionSimulation.SEARCH_PARAM,
+				VideoCompressionSimulation.GAZE_SIZE,
+				FOREGROUND_QUANT,
+				BACKGROUND_QUANT,
+				true,
+				false,
+				RGBFileReader.GrayConversion.FIXED_POINT,
+				numThreads,
+				FRAME_CACHE_BYTES,
+				tileCacheBytes,
+				DCTBlock.CoefficientFormat.FLOAT,
+				DctEngine.Kind.FAST,
+				0,
+				motionSearchKind);
+	}
+
+	private static int getValue(int frameNum, int channelNum, int row, int col, int width, int height) {
+		int squareRow = (height / 4) + (2 * frameNum);
+		int squareCol = (width / 2) - (3 * frameNum);
+		if (row >= squareRow && row < squareRow + SQUARE_SIZE && col >= squareCol && col < squareCol + SQUARE_SIZE) {
+			return 200 - (40 * channelNum) + (((row - squareRow) * (col - squareCol)) % 23);
+		}
+		int y = row + ((frameNum * ((4 * col) / width)) / 2);
+		int x = col + (frameNum * (1 + ((4 * row) / height)));
+		double texture = (50 * Math.sin(x / 5.0)) + (40 * Math.cos(y / 7.0)) + (20 * Math.sin((x + y) / 3.0));
+		return Math.max(0, Math.min(255, 120 + (30 * channelNum) + (int) texture));
+	}
+
+}